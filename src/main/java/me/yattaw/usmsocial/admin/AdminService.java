@@ -7,7 +7,14 @@ import me.yattaw.usmsocial.entities.report.ReportType;
 import me.yattaw.usmsocial.entities.report.UserReport;
 import me.yattaw.usmsocial.entities.user.User;
 import me.yattaw.usmsocial.entities.user.UserPost;
+import me.yattaw.usmsocial.post.ranking.PostRankingService;
+import me.yattaw.usmsocial.post.timeline.TimelineService;
 import me.yattaw.usmsocial.repositories.*;
+import me.yattaw.usmsocial.service.TokenRevocationService;
+import me.yattaw.usmsocial.service.UserCacheService;
+import me.yattaw.usmsocial.user.follow.FollowCounterService;
+import me.yattaw.usmsocial.user.follow.SocialGraphService;
+import me.yattaw.usmsocial.user.search.UserSearchIndex;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
@@ -32,6 +39,13 @@ public class AdminService {
     private final LikeRepository likeRepository;
     private final CommentRepository commentRepository;
     private final ReportRepository reportRepository;
+    private final TimelineService timelineService;
+    private final PostRankingService postRankingService;
+    private final UserCacheService userCacheService;
+    private final UserSearchIndex userSearchIndex;
+    private final SocialGraphService socialGraphService;
+    private final FollowCounterService followCounterService;
+    private final TokenRevocationService tokenRevocationService;
 
     /**
      * Deletes a user and related posts.
@@ -43,11 +57,23 @@ public class AdminService {
         Optional<User> user = userRepository.findById(request.getTargetId());
 
         if (user.isPresent()) {
-            // Delete or update related posts
+            // Delete or update related posts, and drop them from the cached feeds
+            List<Integer> postIds = postRepository.getUserPostIds(user.get().getId());
             postRepository.deleteByUser(user.get());
+            postIds.forEach(postId -> {
+                timelineService.removePost(postId);
+                postRankingService.removePost(postId);
+            });
+            followCounterService.removeUser(user.get().getId());
 
             // Now delete the user
             userRepository.delete(user.get());
+            userCacheService.evict(user.get().getEmail());
+            // Tokens are authorized from their claims, so they must be rejected as soon as the user is gone
+            tokenRevocationService.invalidate(user.get().getId());
+            userSearchIndex.remove(user.get().getId());
+            socialGraphService.removeUser(user.get().getId());
+            timelineService.invalidate(user.get().getId());
 
             return AdminActionResponse.builder()
                     .status(1)
@@ -75,6 +101,8 @@ public class AdminService {
             commentRepository.deleteAll(userPost.get().getComments());
             likeRepository.deleteAll(userPost.get().getLikes());
             postRepository.delete(userPost.get());
+            timelineService.removePost(userPost.get().getId());
+            postRankingService.removePost(userPost.get().getId());
 
             return AdminActionResponse.builder()
                     .status(1)
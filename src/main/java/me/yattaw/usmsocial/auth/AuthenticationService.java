@@ -6,8 +6,11 @@ import me.yattaw.usmsocial.entities.user.Role;
 import me.yattaw.usmsocial.entities.user.User;
 import me.yattaw.usmsocial.repositories.UserRepository;
 import me.yattaw.usmsocial.service.EmailSenderService;
+import me.yattaw.usmsocial.service.CurrentUserService;
 import me.yattaw.usmsocial.service.JwtService;
+import me.yattaw.usmsocial.service.UserCacheService;
 import me.yattaw.usmsocial.user.responses.AuthenicationException;
+import me.yattaw.usmsocial.user.search.UserSearchIndex;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.AuthenticationException;
@@ -31,6 +34,9 @@ public class AuthenticationService {
 
     private final UserRepository userRepository;
     private final JwtService jwtService;
+    private final CurrentUserService currentUserService;
+    private final UserCacheService userCacheService;
+    private final UserSearchIndex userSearchIndex;
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
     private final EmailSenderService senderService;
@@ -49,6 +55,8 @@ public class AuthenticationService {
             // Continue with the registration process...
             // (generate verification token, save to the database, generate JWT, send email, etc.)
             userRepository.save(user);
+            userCacheService.evict(user.getEmail());
+            userSearchIndex.index(user);
             String jwtToken = jwtService.generateToken(user);
 
             return AuthenticationResponse.builder()
@@ -68,6 +76,7 @@ public class AuthenticationService {
             user.generateVerificationToken();
 
             userRepository.save(user);
+            userSearchIndex.index(user);
             String jwtToken = jwtService.generateToken(user);
 
             senderService.sendEmail(
@@ -142,6 +151,7 @@ public class AuthenticationService {
             // User remembered their password so delete their verification token
             user.setVerificationToken(null);
             userRepository.save(user);
+            userCacheService.evict(user.getEmail());
         }
 
         String jwtToken = jwtService.generateToken(user);
@@ -159,8 +169,7 @@ public class AuthenticationService {
     public Optional<User> getCurrentUser(
             HttpServletRequest servletRequest
     ) {
-        String token = jwtService.extractToken(servletRequest);
-        return userRepository.findByEmail(jwtService.fetchEmail(token));
+        return currentUserService.getCurrentUser(servletRequest);
     }
 
     /**
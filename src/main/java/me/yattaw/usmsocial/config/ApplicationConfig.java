@@ -1,7 +1,7 @@
 package me.yattaw.usmsocial.config;
 
 import lombok.RequiredArgsConstructor;
-import me.yattaw.usmsocial.repositories.UserRepository;
+import me.yattaw.usmsocial.service.UserCacheService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -23,15 +23,17 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 @RequiredArgsConstructor
 public class ApplicationConfig {
 
-    private final UserRepository userRepository;
+    private final UserCacheService userCacheService;
 
     /**
      * Bean definition for UserDetailsService.
+     * Users are looked up through {@link UserCacheService} so authenticating a request
+     * does not read the database while the user is cached.
      * @return An instance of UserDetailsService implementation.
      */
     @Bean
     public UserDetailsService userDetailsService() {
-        return email -> userRepository.findByEmail(email)
+        return email -> userCacheService.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("Could not find user"));
     }
 
@@ -9,6 +9,7 @@ import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 /**
  * Configuration class for asynchronous task execution, enabling asynchronous
  * processing.
@@ -35,6 +36,58 @@ public class AsyncConfig implements AsyncConfigurer {
         return executor;
     }
 
+    /**
+     * Retrieves the executor used to fan out new posts to follower timelines.
+     * When the queue is full the fan-out runs on the posting thread instead of failing the request.
+     * @return An instance of ThreadPoolTaskExecutor configured for timeline fan-out.
+     */
+    @Bean(name = "feedExecutor")
+    public Executor getFeedExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(500);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("FeedExecutor-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Retrieves the executor used to send Server-Sent Events to connected clients.
+     * Tasks beyond the queue capacity are rejected; the affected clients are disconnected
+     * and catch up when they reconnect.
+     * @return An instance of ThreadPoolTaskExecutor configured for event streams.
+     */
+    @Bean(name = "streamExecutor")
+    public Executor getStreamExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(1_000);
+        executor.setThreadNamePrefix("StreamExecutor-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Retrieves the executor used to generate profile picture thumbnails.
+     * Tasks beyond the queue capacity are dropped, the thumbnails are then generated
+     * the next time the picture is requested.
+     * @return An instance of ThreadPoolTaskExecutor configured for image processing.
+     */
+    @Bean(name = "imageExecutor")
+    public Executor getImageExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(50);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.setThreadNamePrefix("ImageExecutor-");
+        executor.initialize();
+        return executor;
+    }
+
     /**
      * Retrieves the asynchronous uncaught exception handler.
      * @return An instance of SimpleAsyncUncaughtExceptionHandler for handling uncaught exceptions.
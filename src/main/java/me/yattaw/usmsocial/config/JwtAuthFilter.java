@@ -8,21 +8,31 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
+import me.yattaw.usmsocial.entities.user.Role;
+import me.yattaw.usmsocial.entities.user.User;
+import me.yattaw.usmsocial.service.CurrentUserService;
 import me.yattaw.usmsocial.service.JwtService;
 import me.yattaw.usmsocial.user.responses.UserActionResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Filter class responsible for JWT-based authentication.
  * This filter intercepts incoming requests, extracts JWT tokens, and authenticates users based on the token.
+ * Tokens carrying the user ID and role claims are authenticated from the verified claims alone, only
+ * checking that the token was not revoked, so the user is not loaded unless a service asks for it.
+ * Older tokens without those claims are authenticated by loading the user through the user cache.
  *
  * @version 17 April 2024
  */
@@ -32,6 +42,7 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final CurrentUserService currentUserService;
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
     /**
@@ -51,17 +62,24 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         String token = jwtService.extractToken(request);
         if (token != null && SecurityContextHolder.getContext().getAuthentication() == null) {
             try {
-                String email = jwtService.fetchEmail(token);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(email);
-                if (jwtService.isValidToken(token, userDetails)) {
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails,
-                            null,
-                            userDetails.getAuthorities()
-                    );
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
+                Integer userId = jwtService.fetchUserId(token);
+                Role role = jwtService.fetchRole(token);
+                if (userId != null && role != null) {
+                    if (!jwtService.isTokenExpired(token) && !jwtService.isTokenRevoked(token, userId)) {
+                        authenticate(request, jwtService.fetchEmail(token), List.of(role.getSimpleGrantedAuthority()));
+                    }
+                } else {
+                    UserDetails userDetails = userDetailsService.loadUserByUsername(jwtService.fetchEmail(token));
+                    if (jwtService.isValidToken(token, userDetails)) {
+                        authenticate(request, userDetails, userDetails.getAuthorities());
+                        // Services read the user from the request instead of loading it again
+                        if (userDetails instanceof User user) {
+                            currentUserService.setCurrentUser(request, user);
+                        }
+                    }
                 }
+            } catch (UsernameNotFoundException ex) {
+                // The user was deleted after the token was issued, leave the request unauthenticated
             } catch (ExpiredJwtException ex) {
                 // Handle expired token
                 UserActionResponse expiredTokenResponse = UserActionResponse.builder()
@@ -78,5 +96,19 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    private void authenticate(
+            HttpServletRequest request,
+            Object principal,
+            Collection<? extends GrantedAuthority> authorities
+    ) {
+        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                principal,
+                null,
+                authorities
+        );
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+    }
+
 }
 
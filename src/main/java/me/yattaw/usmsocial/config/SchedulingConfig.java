@@ -0,0 +1,16 @@
+package me.yattaw.usmsocial.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Configuration class enabling scheduled background tasks, such as flushing
+ * in-memory counters back to the database.
+ *
+ * @version 17 April 2024
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+}
@@ -1,5 +1,6 @@
 package me.yattaw.usmsocial.config;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -34,6 +35,7 @@ public class SecurityConfiguration {
             "/api/v1/reset_password/**",
             "/api/v1/change_password/**",
             "/api/v1/verify/**",
+            "/api/v1/avatar/**",
             "/api/v1/test/**"
     };
 
@@ -49,7 +51,9 @@ public class SecurityConfiguration {
                 .cors(corsConfigurer -> corsConfigurer.configurationSource(corsConfigurationSource()))
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(req ->
-                        req.requestMatchers(AUTHORIZED_URLS).permitAll()
+                        // Async dispatches only complete responses, e.g. post streams, already authorized on the initial request
+                        req.dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                                .requestMatchers(AUTHORIZED_URLS).permitAll()
                                 .requestMatchers("/api/v1/user/**", "/api/v1/message/**", "/api/v1/post/**").hasAnyAuthority(
                                         STUDENT.getAuthority(), ALUMNI.getAuthority(), STAFF.getAuthority(),
                                         FACULTY.getAuthority(), ADMIN.getAuthority()
@@ -0,0 +1,81 @@
+package me.yattaw.usmsocial.entities.message;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import me.yattaw.usmsocial.entities.user.User;
+
+import java.time.LocalDateTime;
+
+/**
+ * Defines the properties of a <code>ConversationSummary</code>.
+ * A <code>ConversationSummary</code> describes the latest state of the direct message
+ * conversation between its owner and one partner, as shown in the owner's inbox.
+ * Each conversation has one summary per participant, stored in the table
+ * <code>usm_social_conversation_summaries</code>.
+ * @version 17 April 2024
+ */
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "usm_social_conversation_summaries",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"owner_id", "partner_id"}),
+        indexes = @Index(name = "idx_conversation_summaries_owner_timestamp", columnList = "owner_id, last_timestamp"))
+public class ConversationSummary {
+
+    /**
+     * id - unique identifier for this summary.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    /**
+     * owner - the <code>User</code> whose inbox this summary belongs to.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "owner_id", nullable = false)
+    private User owner;
+
+    /**
+     * partner - the <code>User</code> the owner is talking to.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "partner_id", nullable = false)
+    private User partner;
+
+    /**
+     * lastMessageId - the ID of the newest <code>DirectMessage</code> of the conversation.
+     */
+    @Column(name = "last_message_id", nullable = false)
+    private Integer lastMessageId;
+
+    /**
+     * lastMessage - the contents of the newest message of the conversation.
+     */
+    @Column(name = "last_message")
+    private String lastMessage;
+
+    /**
+     * lastSenderId - the ID of the user who sent the newest message of the conversation.
+     */
+    @Column(name = "last_sender_id", nullable = false)
+    private Integer lastSenderId;
+
+    /**
+     * lastTimestamp - the time the newest message of the conversation was sent.
+     */
+    @Column(name = "last_timestamp", nullable = false)
+    private LocalDateTime lastTimestamp;
+
+    /**
+     * unreadCount - the number of messages the owner has received since last reading the conversation.
+     */
+    @Column(name = "unread_count", nullable = false)
+    private int unreadCount;
+
+}
@@ -20,7 +20,9 @@ import java.time.LocalDateTime;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "usm_social_direct_messages")
+@Table(name = "usm_social_direct_messages", indexes = {
+        @Index(name = "idx_direct_messages_conversation_id", columnList = "conversation_key, id")
+})
 public class DirectMessage {
 
     /**
@@ -54,4 +56,31 @@ public class DirectMessage {
      */
     private LocalDateTime timestamp;
 
+    /**
+     * conversationKey - identifies the conversation between sender and receiver regardless of direction,
+     * see {@link #conversationKey(int, int)}.
+     */
+    @Column(name = "conversation_key")
+    private Long conversationKey;
+
+    /**
+     * Computes the key of the conversation between two users. The key is the same no matter
+     * which of the two users sent a message, so both directions share one index range.
+     *
+     * @param userId1 The ID of the first user.
+     * @param userId2 The ID of the second user.
+     * @return The smaller user ID in the upper 32 bits and the larger one in the lower 32 bits.
+     */
+    public static long conversationKey(int userId1, int userId2) {
+        return ((long) Math.min(userId1, userId2) << 32) | Math.max(userId1, userId2);
+    }
+
+    /**
+     * Sets the conversation key from the sender and receiver before the message is saved.
+     */
+    @PrePersist
+    public void assignConversationKey() {
+        conversationKey = conversationKey(sender.getId(), receiver.getId());
+    }
+
 }
\ No newline at end of file
@@ -20,7 +20,8 @@ import java.time.LocalDateTime;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "usm_social_group_messages")
+@Table(name = "usm_social_group_messages",
+        indexes = @Index(name = "idx_group_messages_group_id", columnList = "group_id, id"))
 public class GroupMessage {
 
     /**
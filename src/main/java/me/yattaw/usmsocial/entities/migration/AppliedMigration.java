@@ -0,0 +1,40 @@
+package me.yattaw.usmsocial.entities.migration;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Records a one-time data migration that has been applied to the database.
+ *
+ * Rows are written by {@link me.yattaw.usmsocial.service.MigrationService}, so each migration
+ * runs exactly once across every instance of the application.
+ *
+ * @version 17 April 2024
+ */
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "usm_social_migrations")
+public class AppliedMigration {
+
+    /**
+     * name - the unique name of the migration.
+     */
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    /**
+     * appliedAt - when the migration was applied.
+     */
+    @Column(name = "applied_at", nullable = false)
+    private LocalDateTime appliedAt;
+
+}
@@ -20,7 +20,9 @@ import java.time.LocalDateTime;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "usm_social_post_comments")
+@Table(name = "usm_social_post_comments", indexes = @Index(
+        name = "idx_post_comments_post_timestamp_id", columnList = "post_id, timestamp, comment_id"
+))
 public class PostComment {
 
     /**
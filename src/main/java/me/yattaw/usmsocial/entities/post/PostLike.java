@@ -18,7 +18,9 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @EqualsAndHashCode
-@Table(name = "usm_social_post_likes")
+@Table(name = "usm_social_post_likes", indexes = @Index(
+        name = "idx_post_likes_user_like_id", columnList = "user_id, like_id"
+))
 public class PostLike {
 
     /**
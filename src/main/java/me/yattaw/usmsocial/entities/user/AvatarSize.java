@@ -0,0 +1,41 @@
+package me.yattaw.usmsocial.entities.user;
+
+import lombok.Getter;
+
+/**
+ * Represents the sizes profile picture thumbnails are generated in.
+ * @version 17 April 2024
+ */
+@Getter
+public enum AvatarSize {
+
+    /**
+     * Size used next to comments, search results and conversations.
+     */
+    SMALL(48),
+
+    /**
+     * Size used next to posts.
+     */
+    MEDIUM(128),
+
+    /**
+     * Size used on profile pages.
+     */
+    LARGE(512);
+
+    /**
+     * The width and height of the thumbnail in pixels.
+     */
+    private final int pixels;
+
+    /**
+     * Constructs a new AvatarSize enum with the specified dimensions.
+     *
+     * @param pixels The width and height of the thumbnail in pixels.
+     */
+    AvatarSize(int pixels) {
+        this.pixels = pixels;
+    }
+
+}
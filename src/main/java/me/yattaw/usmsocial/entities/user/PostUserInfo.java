@@ -36,8 +36,8 @@ public class PostUserInfo {
     private String tagLine;
 
     /**
-     * The base64 encoded image associated with the user.
+     * The URL of the profile picture associated with the user.
      */
-    private String base64Image;
+    private String avatarUrl;
 
 }
@@ -0,0 +1,39 @@
+package me.yattaw.usmsocial.entities.user;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Represents the original image data of a profile picture.
+ *
+ * Pictures are kept apart from {@link User} in the table <code>usm_social_profile_pictures</code>,
+ * keyed by their content hash, so loading a user never reads the image data.
+ *
+ * @version 17 April 2024
+ */
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "usm_social_profile_pictures")
+public class ProfilePicture {
+
+    /**
+     * hash - the SHA-256 content hash of the image data, referenced by {@link User#getProfilePictureHash()}.
+     */
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    /**
+     * imageData - the image data as uploaded.
+     */
+    @Lob
+    @Column(name = "image_data", columnDefinition = "LONGBLOB", nullable = false)
+    private byte[] imageData;
+
+}
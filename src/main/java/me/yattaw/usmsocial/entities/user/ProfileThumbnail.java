@@ -0,0 +1,52 @@
+package me.yattaw.usmsocial.entities.user;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Represents a downscaled copy of a profile picture.
+ *
+ * Thumbnails are keyed by the content hash of the original picture and their size, and
+ * are stored in the table <code>usm_social_profile_thumbnails</code>.
+ *
+ * @version 17 April 2024
+ */
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "usm_social_profile_thumbnails",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"source_hash", "size"}))
+public class ProfileThumbnail {
+
+    /**
+     * id - unique identifier for this thumbnail.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    /**
+     * sourceHash - the content hash of the original profile picture.
+     */
+    @Column(name = "source_hash", length = 64, nullable = false)
+    private String sourceHash;
+
+    /**
+     * size - the width and height of this thumbnail in pixels.
+     */
+    @Column(nullable = false)
+    private int size;
+
+    /**
+     * imageData - the JPEG encoded thumbnail.
+     */
+    @Lob
+    @Column(name = "image_data", columnDefinition = "MEDIUMBLOB", nullable = false)
+    private byte[] imageData;
+
+}
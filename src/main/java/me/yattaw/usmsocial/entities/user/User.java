@@ -12,7 +12,8 @@ import java.util.*;
  * Represents a user in the social network system.
  *
  * This class stores information about users, including their personal details,
- * role in the system, profile picture, and verification status.
+ * role in the system, profile picture hash, and verification status. The profile picture
+ * itself is stored separately as a {@link ProfilePicture}.
  *
  * Registering emails are checked for the @maine.edu domain and checked for duplicates.
  *
@@ -23,10 +24,13 @@ import java.util.*;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "usm_social_users", uniqueConstraints = @UniqueConstraint(columnNames = "email"))
+@Table(name = "usm_social_users", uniqueConstraints = @UniqueConstraint(columnNames = "email"),
+        indexes = @Index(name = "idx_users_profile_picture_hash", columnList = "profile_picture_hash"))
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 public class User implements UserDetails {
 
+    private static final String AVATAR_URL_PREFIX = "/api/v1/avatar/";
+
     @Id
     @Column(name = "user_id")
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -54,9 +58,8 @@ public class User implements UserDetails {
     @Enumerated(EnumType.STRING)
     private Role role;
 
-    @Lob
-    @Column(name = "profile_picture", columnDefinition="LONGBLOB")
-    private byte[] profilePicture;
+    @Column(name = "profile_picture_hash", length = 64)
+    private String profilePictureHash;
 
     @ManyToMany(mappedBy = "members", fetch = FetchType.LAZY)
     private Set<UserGroups> groups;
@@ -67,6 +70,27 @@ public class User implements UserDetails {
 
     private LocalDateTime timestamp;
 
+    /**
+     * Tokens issued at or before this time are rejected, e.g. after a password change.
+     */
+    @Column(name = "token_valid_after")
+    private LocalDateTime tokenValidAfter;
+
+    /**
+     * The number of followers of this user. The column is maintained by the follow counter
+     * service, so it is never written through this entity.
+     */
+    @Column(name = "follower_count", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int followerCount;
+
+    /**
+     * The number of users this user follows, maintained like {@link #followerCount}.
+     */
+    @Column(name = "following_count", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int followingCount;
+
     /**
      * Retrieves the authorities granted to the user.
      *
@@ -128,16 +152,14 @@ public class User implements UserDetails {
     }
 
     /**
-     * Retrieves the base64 encoded profile picture of the user.
+     * Retrieves the URL the profile picture of the user is served from.
+     * The URL changes whenever the picture changes, so it can be cached indefinitely.
      *
-     * @return The base64 encoded profile picture of the user.
+     * @param size The size of the thumbnail to serve.
+     * @return The URL of the profile picture, or an empty string if the user has none.
      */
-    public String getBase64ProfilePicture() {
-        String encodedString = "";
-        if (profilePicture != null && profilePicture.length != 0) {
-            encodedString = Base64.getEncoder().encodeToString(profilePicture);
-        }
-        return encodedString;
+    public String getAvatarUrl(AvatarSize size) {
+        return profilePictureHash == null ? "" : AVATAR_URL_PREFIX + profilePictureHash + "?size=" + size.getPixels();
     }
 
     /**
@@ -146,7 +168,7 @@ public class User implements UserDetails {
      * @return A simplified representation of user information suitable for a post.
      */
     public PostUserInfo getPostUserInfo() {
-        return new PostUserInfo(id, firstName, lastName, email, tagLine, getBase64ProfilePicture());
+        return new PostUserInfo(id, firstName, lastName, email, tagLine, getAvatarUrl(AvatarSize.MEDIUM));
     }
 
     /**
@@ -155,7 +177,15 @@ public class User implements UserDetails {
      * @return A detailed representation of user information.
      */
     public UserInfo getUserInfo() {
-        return new UserInfo(id, firstName, lastName, email, tagLine, bio, getBase64ProfilePicture());
+        return new UserInfo(id, firstName, lastName, email, tagLine, bio, getAvatarUrl(AvatarSize.LARGE));
+    }
+
+    /**
+     * Invalidates every token issued to the user up to now. Requests are authorized from the role
+     * claim of their token, so this must also be called when the role of the user is lowered.
+     */
+    public void revokeTokens() {
+        setTokenValidAfter(LocalDateTime.now());
     }
 
     /**
@@ -192,7 +222,8 @@ public class User implements UserDetails {
 
         if (object != null && object instanceof User)
         {
-            return this.id == ((User) object).id;
+            // Compare the boxed IDs by value, the other user may also be a lazy proxy
+            return Objects.equals(this.id, ((User) object).getId());
         }
 
         return false;
@@ -28,7 +28,7 @@ public class UserInfo extends PostUserInfo {
      * @param email The email address of the user.
      * @param tagLine The tagline associated with the user.
      * @param bio The biography of the user.
-     * @param imageBase64 The base64 encoded profile picture of the user.
+     * @param avatarUrl The URL of the profile picture of the user.
      */
     public UserInfo(
             int id,
@@ -37,9 +37,9 @@ public class UserInfo extends PostUserInfo {
             String email,
             String tagLine,
             String bio,
-            String imageBase64
+            String avatarUrl
     ) {
-        super(id, firstName, lastName, email, tagLine, imageBase64);
+        super(id, firstName, lastName, email, tagLine, avatarUrl);
         this.bio = bio;
     }
 }
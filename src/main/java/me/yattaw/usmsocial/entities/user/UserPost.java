@@ -22,7 +22,11 @@ import java.util.*;
 @NoArgsConstructor
 @AllArgsConstructor
 @EqualsAndHashCode(exclude = "likes")
-@Table(name = "usm_social_posts")
+@Table(name = "usm_social_posts", indexes = {
+        @Index(name = "idx_posts_timestamp_id", columnList = "timestamp, post_id"),
+        @Index(name = "idx_posts_user_timestamp_id", columnList = "user_id, timestamp, post_id"),
+        @Index(name = "idx_posts_user_post_id", columnList = "user_id, post_id")
+})
 public class UserPost {
 
     /**
@@ -65,18 +69,20 @@ public class UserPost {
     private LocalDateTime timestamp;
 
     /**
-     * The transient field for dynamic calculation of the total number of likes
-     * on this post.
+     * The number of likes on this post. The column is maintained by the like counter
+     * flusher, so it is never written through this entity.
      */
-    @Transient
+    @Column(name = "like_count", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "INT NOT NULL DEFAULT 0")
     private int likeCount;
 
     /**
-     * Updates the total number of likes for this post.
+     * The number of comments on this post. The column is incremented whenever a comment is
+     * created, so it is never written through this entity.
      */
-    public void updateLikeCount() {
-        this.likeCount = likes.size();
-    }
+    @Column(name = "comment_count", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int commentCount;
 
     /**
      * Adds a like to this post.
@@ -85,7 +91,6 @@ public class UserPost {
      */
     public void addLike(PostLike like) {
         likes.add(like);
-        updateLikeCount();
     }
 
     /**
@@ -95,7 +100,6 @@ public class UserPost {
      */
     public void removeLike(PostLike like) {
         likes.remove(like);
-        updateLikeCount();
     }
 
 }
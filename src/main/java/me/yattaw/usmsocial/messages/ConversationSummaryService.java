@@ -0,0 +1,169 @@
+package me.yattaw.usmsocial.messages;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import me.yattaw.usmsocial.entities.message.DirectMessage;
+import me.yattaw.usmsocial.service.MigrationService;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+
+/**
+ * Service class that maintains the conversation summaries the inbox is read from,
+ * and the conversation keys message history is read by.
+ *
+ * <p>
+ * Every sent message updates the summary of the sender and of the receiver with a single upsert,
+ * so reading an inbox is one indexed query instead of one query per conversation.
+ * </p>
+ *
+ * @version 17 April 2024
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@DependsOn("entityManagerFactory")
+public class ConversationSummaryService {
+
+    private static final String SUMMARIES = "usm_social_conversation_summaries";
+
+    // The inserted row is referenced as "new", through a row alias or the alias of a derived table.
+    // Columns are assigned left to right, so last_message_id is compared before it is replaced.
+    // A message that commits after a newer one only adds to the unread count.
+    private static final String MERGE_NEWEST_SQL = " ON DUPLICATE KEY UPDATE " +
+            SUMMARIES + ".last_message = IF(new.last_message_id > " + SUMMARIES + ".last_message_id, " +
+            "new.last_message, " + SUMMARIES + ".last_message), " +
+            SUMMARIES + ".last_sender_id = IF(new.last_message_id > " + SUMMARIES + ".last_message_id, " +
+            "new.last_sender_id, " + SUMMARIES + ".last_sender_id), " +
+            SUMMARIES + ".last_timestamp = IF(new.last_message_id > " + SUMMARIES + ".last_message_id, " +
+            "new.last_timestamp, " + SUMMARIES + ".last_timestamp), " +
+            SUMMARIES + ".last_message_id = GREATEST(new.last_message_id, " + SUMMARIES + ".last_message_id), " +
+            SUMMARIES + ".unread_count = " + SUMMARIES + ".unread_count + new.unread_count";
+
+    private static final String UPSERT_SQL = "INSERT INTO " + SUMMARIES + " " +
+            "(owner_id, partner_id, last_message_id, last_message, last_sender_id, last_timestamp, unread_count) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) AS new" + MERGE_NEWEST_SQL;
+
+    private static final String MARK_READ_SQL = "UPDATE usm_social_conversation_summaries SET unread_count = 0 " +
+            "WHERE owner_id = ? AND partner_id = ? AND unread_count <> 0";
+
+    // Each message belongs to the conversation of its sender and, unless sent to themselves, its receiver.
+    // Summaries written by messages sent meanwhile are merged like any other upsert, without unread messages.
+    private static final String BACKFILL_SQL = "INSERT INTO " + SUMMARIES + " " +
+            "(owner_id, partner_id, last_message_id, last_message, last_sender_id, last_timestamp, unread_count) " +
+            "SELECT * FROM (SELECT owner_id, partner_id, id AS last_message_id, message AS last_message, " +
+            "sender_id AS last_sender_id, timestamp AS last_timestamp, 0 AS unread_count FROM (" +
+            "SELECT c.*, ROW_NUMBER() OVER (PARTITION BY owner_id, partner_id ORDER BY id DESC) AS message_rank FROM (" +
+            "SELECT id, message, sender_id, timestamp, sender_id AS owner_id, receiver_id AS partner_id " +
+            "FROM usm_social_direct_messages " +
+            "UNION ALL " +
+            "SELECT id, message, sender_id, timestamp, receiver_id AS owner_id, sender_id AS partner_id " +
+            "FROM usm_social_direct_messages WHERE receiver_id <> sender_id" +
+            ") c) ranked WHERE message_rank = 1) AS new" + MERGE_NEWEST_SQL;
+
+    private static final int CONVERSATION_KEY_BATCH_SIZE = 10_000;
+
+    // Mirrors DirectMessage#conversationKey for messages saved before the column existed
+    private static final String CONVERSATION_KEY_BACKFILL_SQL = "UPDATE usm_social_direct_messages " +
+            "SET conversation_key = (LEAST(sender_id, receiver_id) << 32) | GREATEST(sender_id, receiver_id) " +
+            "WHERE conversation_key IS NULL LIMIT " + CONVERSATION_KEY_BATCH_SIZE;
+
+    /**
+     * The index message history was read by before conversation keys existed.
+     */
+    private static final String SENDER_RECEIVER_INDEX = "idx_direct_messages_sender_receiver_id";
+
+    // Counts the indexes of the messages table with the given name
+    private static final String INDEX_EXISTS_SQL = "SELECT COUNT(DISTINCT index_name) FROM information_schema.statistics " +
+            "WHERE table_schema = DATABASE() AND table_name = 'usm_social_direct_messages' AND index_name = ?";
+
+    // Counts the other indexes of the messages table that have sender_id as their first column
+    private static final String SENDER_INDEX_COUNT_SQL = "SELECT COUNT(DISTINCT index_name) FROM information_schema.statistics " +
+            "WHERE table_schema = DATABASE() AND table_name = 'usm_social_direct_messages' " +
+            "AND column_name = 'sender_id' AND seq_in_index = 1 AND index_name <> ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MigrationService migrationService;
+
+    /**
+     * Updates the conversation summaries of the sender and receiver of a message.
+     *
+     * @param message The saved direct message.
+     */
+    public void recordMessage(DirectMessage message) {
+        Integer senderId = message.getSender().getId();
+        Integer receiverId = message.getReceiver().getId();
+        Timestamp timestamp = Timestamp.valueOf(message.getTimestamp());
+
+        jdbcTemplate.update(UPSERT_SQL, senderId, receiverId, message.getId(), message.getMessage(),
+                senderId, timestamp, 0);
+        if (!senderId.equals(receiverId)) {
+            jdbcTemplate.update(UPSERT_SQL, receiverId, senderId, message.getId(), message.getMessage(),
+                    senderId, timestamp, 1);
+        }
+    }
+
+    /**
+     * Marks the conversation of a user with a partner as read.
+     *
+     * @param ownerId   The ID of the user reading the conversation.
+     * @param partnerId The ID of the other user of the conversation.
+     */
+    public void markRead(Integer ownerId, Integer partnerId) {
+        jdbcTemplate.update(MARK_READ_SQL, ownerId, partnerId);
+    }
+
+    /**
+     * Runs the data migrations of direct messages once, before any requests are served. Message
+     * history is only looked up by conversation key, so the keys are set first.
+     */
+    @PostConstruct
+    public void migrate() {
+        backfillConversationKeys();
+        dropSenderReceiverIndex();
+        backfillSummaries();
+    }
+
+    /**
+     * Sets the conversation key of messages saved before the column existed. Rows are updated
+     * in batches that are committed one at a time, so the table is never locked for long.
+     */
+    private void backfillConversationKeys() {
+        migrationService.runInBatches("direct_message_conversation_keys",
+                () -> jdbcTemplate.update(CONVERSATION_KEY_BACKFILL_SQL), CONVERSATION_KEY_BATCH_SIZE);
+    }
+
+    /**
+     * Drops the sender and receiver index, which schema updates never remove even though the entity
+     * no longer declares it. The check is cheap, so it runs on every start instead of being claimed
+     * as a migration; MySQL commits DDL implicitly, so it could not be rolled back with the claim anyway.
+     */
+    private void dropSenderReceiverIndex() {
+        Integer exists = jdbcTemplate.queryForObject(INDEX_EXISTS_SQL, Integer.class, SENDER_RECEIVER_INDEX);
+        if (exists == null || exists == 0) {
+            return;
+        }
+
+        // The sender foreign key needs an index starting with sender_id, which may have been this one
+        Integer senderIndexes = jdbcTemplate.queryForObject(SENDER_INDEX_COUNT_SQL, Integer.class, SENDER_RECEIVER_INDEX);
+        String replacement = senderIndexes == null || senderIndexes == 0 ?
+                "ADD INDEX idx_direct_messages_sender_id (sender_id), " : "";
+        jdbcTemplate.execute("ALTER TABLE usm_social_direct_messages " + replacement +
+                "DROP INDEX " + SENDER_RECEIVER_INDEX);
+        log.info("Dropped index {} of direct messages", SENDER_RECEIVER_INDEX);
+    }
+
+    /**
+     * Builds the summaries of existing conversations on the first start after summaries were introduced.
+     */
+    private void backfillSummaries() {
+        migrationService.runOnce("conversation_summaries", () -> {
+            int updated = jdbcTemplate.update(BACKFILL_SQL);
+            log.info("Built conversation summaries from existing messages, {} rows affected", updated);
+        });
+    }
+
+}
@@ -5,10 +5,12 @@ import me.yattaw.usmsocial.messages.request.MessageSendRequest;
 import me.yattaw.usmsocial.messages.response.MessageResponse;
 import me.yattaw.usmsocial.messages.response.RecentMessageInfo;
 import me.yattaw.usmsocial.user.responses.UserActionResponse;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 /**
@@ -22,6 +24,8 @@ import java.util.List;
  * <ul>
  *     <li>GET /api/v1/message/recent/: Retrieves recent messages.</li>
  *     <li>GET /api/v1/message/fetch/user/{senderId}: Retrieves messages for a specific user.</li>
+ *     <li>GET /api/v1/message/fetch/user/{senderId}/after: Retrieves messages newer than a given message.</li>
+ *     <li>GET /api/v1/message/stream: Streams new messages of the current user as Server-Sent Events.</li>
  *     <li>POST /api/v1/message/user/{id}: Sends a message to a user identified by the provided user
  *     ID.</li>
  * </ul>
@@ -61,24 +65,66 @@ public class MessageController {
     /**
      * Retrieves messages for a specific user identified by the senderId.
      *
-     * <p>This endpoint retrieves messages for the user identified by the senderId path variable.
-     * The messages can be retrieved based on various criteria such as message history,
-     * message type, or any other relevant parameters.</p>
+     * <p>This endpoint retrieves messages for the user identified by the senderId path variable,
+     * newest first. Without a cursor the newest messages are returned. Passing the ID of the oldest
+     * loaded message as <code>before</code> pages further back, passing the ID of the newest loaded
+     * message as <code>after</code> returns only the messages sent since.</p>
      *
      * @param senderId The ID of the user for whom messages will be retrieved.
-     * @return ResponseEntity containing a success message if the operation was successful.
+     * @param before   The ID of the oldest message the client already has, optional.
+     * @param after    The ID of the newest message the client already has, optional.
+     * @param pageSize The maximum number of messages to return, at most 100.
+     * @return ResponseEntity containing the messages, newest first.
      */
     @GetMapping("/fetch/user/{senderId}")
     public ResponseEntity<List<MessageResponse>> getMessages(
-            @PathVariable Integer senderId
+            @PathVariable Integer senderId,
+            @RequestParam(name = "before", required = false) Integer before,
+            @RequestParam(name = "after", required = false) Integer after,
+            @RequestParam(name = "pageSize", defaultValue = "100") Integer pageSize
     ) {
         return ResponseEntity.ok(service.getMessages(
                         ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest(),
-                        senderId
+                        senderId,
+                        before,
+                        after,
+                        pageSize
                 )
         );
     }
 
+    /**
+     * Retrieves messages for a specific user that are newer than a given message.
+     *
+     * <p>This endpoint lets clients catch up after reconnecting to the message stream by only
+     * loading the messages after the newest one they already have.</p>
+     *
+     * @param senderId The ID of the user for whom messages will be retrieved.
+     * @param after    The ID of the newest message the client already has.
+     * @return ResponseEntity containing the newer messages, newest first.
+     */
+    @GetMapping("/fetch/user/{senderId}/after")
+    public ResponseEntity<List<MessageResponse>> getMessagesAfter(
+            @PathVariable Integer senderId,
+            @RequestParam(name = "after") Integer after
+    ) {
+        return getMessages(senderId, null, after, MessageService.MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Subscribes to the direct messages of the current user.
+     *
+     * <p>This endpoint keeps the connection open and sends a <code>direct-message</code> event
+     * as soon as the current user sends or receives a message.</p>
+     *
+     * @return SseEmitter the messages are sent through.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamMessages() {
+        return service.subscribeToMessages(
+                ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest()
+        );
+    }
 
     /**
      * Sends a message to the user identified by the provided user ID.
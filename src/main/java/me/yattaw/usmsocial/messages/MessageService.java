@@ -3,21 +3,26 @@ package me.yattaw.usmsocial.messages;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import me.yattaw.usmsocial.entities.message.DirectMessage;
+import me.yattaw.usmsocial.entities.user.AvatarSize;
 import me.yattaw.usmsocial.entities.user.User;
 import me.yattaw.usmsocial.messages.request.MessageSendRequest;
 import me.yattaw.usmsocial.messages.response.MessageResponse;
 import me.yattaw.usmsocial.messages.response.RecentMessageInfo;
+import me.yattaw.usmsocial.messages.stream.DirectMessageSentEvent;
+import me.yattaw.usmsocial.messages.stream.MessageStreamService;
+import me.yattaw.usmsocial.repositories.ConversationSummaryRepository;
 import me.yattaw.usmsocial.repositories.DirectMessageRepository;
 import me.yattaw.usmsocial.repositories.UserRepository;
-import me.yattaw.usmsocial.service.JwtService;
+import me.yattaw.usmsocial.service.CurrentUserService;
+import me.yattaw.usmsocial.user.responses.AuthenicationException;
 import me.yattaw.usmsocial.user.responses.UserActionResponse;
-import org.springframework.data.domain.Pageable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 /**
@@ -29,7 +34,7 @@ import java.util.Optional;
  * <p>The service relies on the {@link UserRepository} and {@link DirectMessageRepository}
  * for accessing user and direct message data, respectively.</p>
  *
- * <p>It also uses the {@link JwtService} to handle JSON Web Token operations.</p>
+ * <p>It also uses the {@link CurrentUserService} to resolve the user making a request from its token.</p>
  *
  * {@code @Service} indicates that this class is a service component in the Spring application context.
  * {@code @RequiredArgsConstructor} is a Lombok annotation to generate a constructor with required arguments.
@@ -40,9 +45,18 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class MessageService {
 
+    /**
+     * The maximum number of messages returned by one request.
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+
     private final UserRepository userRepository;
     private final DirectMessageRepository dmRepository;
-    private final JwtService jwtService;
+    private final CurrentUserService currentUserService;
+    private final ConversationSummaryRepository conversationSummaryRepository;
+    private final ConversationSummaryService conversationSummaryService;
+    private final MessageStreamService messageStreamService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Sends a message to the user identified by the provided user ID.
@@ -60,11 +74,7 @@ public class MessageService {
             MessageSendRequest request,
             Integer id
     ) {
-        String token = jwtService.extractToken(servletRequest);
-
-        Optional<User> user = userRepository.findByEmail(
-                jwtService.fetchEmail(token)
-        );
+        Optional<User> user = currentUserService.getCurrentUser(servletRequest);
 
         // This should only happen if a user was deleted
         if (user.isEmpty()) {
@@ -84,6 +94,9 @@ public class MessageService {
                     .build();
 
             dmRepository.save(directMessage);
+            conversationSummaryService.recordMessage(directMessage);
+            eventPublisher.publishEvent(new DirectMessageSentEvent(
+                    user.get().getId(), targetUser.get().getId(), mapToMessageResponse(directMessage)));
         } else {
             return UserActionResponse.builder()
                     .status(0)
@@ -106,11 +119,7 @@ public class MessageService {
      */ 
         public List<RecentMessageInfo> getRecentMessages(HttpServletRequest request) {
 
-        String token = jwtService.extractToken(request);
-
-        Optional<User> user = userRepository.findByEmail(
-                jwtService.fetchEmail(token)
-        );
+        Optional<User> user = currentUserService.getCurrentUser(request);
 
         // This should only happen if a user was deleted
         if (user.isEmpty()) {
@@ -118,60 +127,51 @@ public class MessageService {
         }
 
 
-        List<User> usersSent = dmRepository.findUsersWithMessagesToUser(user.get());
-        List<User> usersFrom = dmRepository.findUsersWithMessagesFromUser(user.get());
-        List<User> users = new ArrayList<>();
-        users.addAll(usersSent);
-        for (User userFrom : usersFrom) {
-                if (!users.contains(userFrom)) {
-                        users.add(userFrom);
-                }
-        }
         List<RecentMessageInfo> recentMessages = new ArrayList<>();
-        users.forEach(messageUser -> {
-            Optional<List<DirectMessage>> message = dmRepository.findMessagesBetweenUsers(
-                    user.get(),
-                    messageUser,
-                    Pageable.ofSize(1)
-            );
-            message.ifPresent(dm -> recentMessages.add(
+        conversationSummaryRepository.findInbox(user.get().getId()).forEach(summary -> {
+            User partner = summary.getPartner();
+            User lastSender = partner.getId().equals(summary.getLastSenderId()) ? partner : user.get();
+            recentMessages.add(
                     RecentMessageInfo.builder()
-                            .userId(messageUser.getId())
-                            .firstName(messageUser.getFirstName())
-                            .lastName(messageUser.getLastName())
-                            .tagLine(messageUser.getTagLine())
-                            .base64Image(messageUser.getBase64ProfilePicture())
-                            .lastMessage(dm.get(0).getMessage())
-                            .lastSenderFullName(
-                                    dm.get(0).getSender().getFirstName() + " " + dm.get(0).getSender().getLastName()
-                            )
-                            .lastSenderId(dm.get(0).getSender().getId())
-                            .timestamp(dm.get(0).getTimestamp())
+                            .userId(partner.getId())
+                            .firstName(partner.getFirstName())
+                            .lastName(partner.getLastName())
+                            .tagLine(partner.getTagLine())
+                            .avatarUrl(partner.getAvatarUrl(AvatarSize.SMALL))
+                            .lastMessage(summary.getLastMessage())
+                            .lastSenderFullName(lastSender.getFirstName() + " " + lastSender.getLastName())
+                            .lastSenderId(summary.getLastSenderId())
+                            .timestamp(summary.getLastTimestamp())
+                            .unreadCount(summary.getUnreadCount())
                             .build()
-            ));
-        });
-        recentMessages.sort(new Comparator<RecentMessageInfo>() {
-                public int compare(RecentMessageInfo o1, RecentMessageInfo o2) {
-                        return o1.getTimestamp().compareTo(o2.getTimestamp());
-                }
+            );
         });
         return recentMessages;
     }
 
     /**
-     * Retrieves messages between the current user and a specified user.
+     * Retrieves a page of messages between the current user and a specified user, newest first.
+     *
+     * <p>Without a cursor the newest messages are returned. With <code>beforeId</code> the messages
+     * preceding it are returned, used to scroll back through the conversation. With <code>afterId</code>
+     * the messages following it are returned, used to catch up on missed messages.</p>
      *
      * @param request   The servlet request containing the JWT token.
-     * @param senderId  The ID of the sender user.
-     * @return List of MessageResponse representing messages between the users.
+     * @param senderId  The ID of the other user.
+     * @param beforeId  The ID of the oldest message the client already has, or null.
+     * @param afterId   The ID of the newest message the client already has, or null.
+     * @param pageSize  The maximum number of messages to return.
+     * @return List of MessageResponse representing messages between the users, newest first.
      */
-    public List<MessageResponse> getMessages(HttpServletRequest request, Integer senderId) {
-
-        String token = jwtService.extractToken(request);
+    public List<MessageResponse> getMessages(
+            HttpServletRequest request,
+            Integer senderId,
+            Integer beforeId,
+            Integer afterId,
+            Integer pageSize
+    ) {
 
-        Optional<User> sender = userRepository.findByEmail(
-                jwtService.fetchEmail(token)
-        );
+        Optional<User> sender = currentUserService.getCurrentUser(request);
 
         Optional<User> receiver = userRepository.findById(senderId);
 
@@ -180,24 +180,50 @@ public class MessageService {
             return Collections.emptyList();
         }
 
-        // Grab the last 100 messages between users
-        Optional<List<DirectMessage>> messageList = dmRepository.findMessagesBetweenUsers(
-                sender.get(),
-                receiver.get(),
-                Pageable.ofSize(100)
-        );
-
-        List<MessageResponse> messageResponses = new ArrayList<>();
-        messageList.ifPresent(directMessages -> directMessages.forEach(dm -> messageResponses.add(
-                MessageResponse.builder()
-                        .userId(dm.getSender().getId())
-                        .firstName(dm.getSender().getFirstName())
-                        .lastName(dm.getSender().getLastName())
-                        .content(dm.getMessage())
-                        .timestamp(dm.getTimestamp())
-                        .build()
-        )));
-
-        return messageResponses;
+        int limit = Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+        long conversationKey = DirectMessage.conversationKey(sender.get().getId(), receiver.get().getId());
+        List<DirectMessage> messages;
+        if (afterId != null) {
+            messages = new ArrayList<>(dmRepository.getMessagesAfter(conversationKey, afterId, limit));
+            Collections.reverse(messages);
+        } else {
+            messages = dmRepository.getMessagesBefore(
+                    conversationKey, beforeId == null ? Integer.MAX_VALUE : beforeId, limit);
+        }
+
+        // Only loading the newest messages counts as reading the conversation
+        if (beforeId == null) {
+            conversationSummaryService.markRead(sender.get().getId(), receiver.get().getId());
+        }
+
+        return messages.stream().map(this::mapToMessageResponse).toList();
+    }
+
+    /**
+     * Opens a Server-Sent Events subscription that receives the direct messages of the current user.
+     *
+     * @param request The servlet request containing the JWT token.
+     * @return The emitter the messages are sent through.
+     */
+    public SseEmitter subscribeToMessages(HttpServletRequest request) {
+        Optional<User> user = currentUserService.getCurrentUser(request);
+
+        // This should only happen if a user was deleted
+        if (user.isEmpty()) {
+            throw new AuthenicationException("Unable to authorize the user token.");
+        }
+
+        return messageStreamService.subscribe(user.get().getId());
+    }
+
+    private MessageResponse mapToMessageResponse(DirectMessage dm) {
+        return MessageResponse.builder()
+                .messageId(dm.getId())
+                .userId(dm.getSender().getId())
+                .firstName(dm.getSender().getFirstName())
+                .lastName(dm.getSender().getLastName())
+                .content(dm.getMessage())
+                .timestamp(dm.getTimestamp())
+                .build();
     }
 }
\ No newline at end of file
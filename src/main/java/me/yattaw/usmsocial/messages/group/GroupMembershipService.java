@@ -0,0 +1,117 @@
+package me.yattaw.usmsocial.messages.group;
+
+import lombok.RequiredArgsConstructor;
+import me.yattaw.usmsocial.repositories.UserGroupRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service class that answers whether a user belongs to a group without loading the group's members.
+ *
+ * <p>
+ * The member IDs of a group are read from <code>usm_social_groups_mapping</code> once and kept as
+ * a bitmap indexed by user ID. Bitmaps are never modified after they are published; adding a member
+ * replaces the bitmap with an updated copy, so membership checks never wait for a query. Only groups
+ * that have members are cached, and the least recently checked group is evicted first, so checks
+ * against made-up group IDs cannot push out the groups that are actually in use.
+ * </p>
+ *
+ * @version 17 April 2024
+ */
+@Service
+@RequiredArgsConstructor
+public class GroupMembershipService {
+
+    /**
+     * The maximum number of groups whose members are kept in memory.
+     */
+    private static final int MAX_CACHED_GROUPS = 1_000;
+
+    private static final String ADD_MEMBER_SQL =
+            "INSERT IGNORE INTO usm_social_groups_mapping (group_id, user_id) VALUES (?, ?)";
+
+    private final UserGroupRepository userGroupRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Integer, BitSet> members = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, BitSet> eldest) {
+                    return size() > MAX_CACHED_GROUPS;
+                }
+            }
+    );
+
+    /**
+     * Incremented whenever a member is added, so a bitmap loaded concurrently is not cached stale.
+     */
+    private final AtomicLong modifications = new AtomicLong();
+
+    /**
+     * Checks whether a user is a member of a group.
+     *
+     * @param groupId The ID of the group.
+     * @param userId  The ID of the user.
+     * @return True if the user is a member of the group, false otherwise.
+     */
+    public boolean isMember(Integer groupId, Integer userId) {
+        return getMembers(groupId).get(userId);
+    }
+
+    /**
+     * Caches the members of a newly created group, so the first check does not have to query them.
+     *
+     * @param groupId   The ID of the group.
+     * @param creatorId The ID of the user who created the group, its only member.
+     */
+    public void registerGroup(Integer groupId, Integer creatorId) {
+        BitSet created = new BitSet();
+        created.set(creatorId);
+        members.put(groupId, created);
+    }
+
+    /**
+     * Adds a user to a group.
+     *
+     * @param groupId The ID of the group.
+     * @param userId  The ID of the user.
+     */
+    public void addMember(Integer groupId, Integer userId) {
+        jdbcTemplate.update(ADD_MEMBER_SQL, groupId, userId);
+        synchronized (members) {
+            modifications.incrementAndGet();
+            members.computeIfPresent(groupId, (id, current) -> {
+                BitSet updated = (BitSet) current.clone();
+                updated.set(userId);
+                return updated;
+            });
+        }
+    }
+
+    private BitSet getMembers(Integer groupId) {
+        BitSet cached = members.get(groupId);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Loaded outside the map's lock, so a slow query only delays checks of this group
+        long modification = modifications.get();
+        BitSet loaded = new BitSet();
+        userGroupRepository.getMemberIds(groupId).forEach(loaded::set);
+
+        // Every group keeps at least its creator, so no members means the group does not exist
+        synchronized (members) {
+            if (!loaded.isEmpty() && modification == modifications.get()) {
+                members.putIfAbsent(groupId, loaded);
+            }
+        }
+        return loaded;
+    }
+
+}
@@ -0,0 +1,135 @@
+package me.yattaw.usmsocial.messages.group;
+
+import me.yattaw.usmsocial.messages.response.MessageResponse;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Bounded, newest-first list of the recent messages of a group.
+ *
+ * <p>Messages are kept in a fixed size ring buffer ordered by message ID, so appending a message
+ * is O(1) and the oldest message is dropped once the buffer is full. A message that is older than
+ * the newest buffered one, e.g. when two members send at the same time and the later insert is
+ * appended first, is inserted at its place instead. A message that is already buffered, e.g. one
+ * that was both loaded from the database and appended after being sent, is only kept once.</p>
+ *
+ * @version 17 April 2024
+ */
+public class GroupMessageBuffer {
+
+    private final MessageResponse[] messages;
+    private int head;
+    private int size;
+
+    private boolean loaded;
+
+    /**
+     * Creates an empty buffer whose messages have not been loaded yet.
+     *
+     * @param capacity The maximum number of messages this buffer can hold.
+     */
+    public GroupMessageBuffer(int capacity) {
+        this.messages = new MessageResponse[capacity];
+    }
+
+    /**
+     * Creates a buffer pre-filled with messages.
+     *
+     * @param capacity    The maximum number of messages this buffer can hold.
+     * @param newestFirst The messages ordered from newest to oldest.
+     */
+    public GroupMessageBuffer(int capacity, List<MessageResponse> newestFirst) {
+        this(capacity);
+        load(newestFirst);
+    }
+
+    /**
+     * Fills the buffer with messages loaded from the database, keeping any message that was added
+     * while they were being loaded.
+     *
+     * @param newestFirst The messages ordered from newest to oldest.
+     */
+    public synchronized void load(List<MessageResponse> newestFirst) {
+        Map<Integer, MessageResponse> merged = new TreeMap<>(Comparator.reverseOrder());
+        newestFirst.forEach(message -> merged.put(message.getMessageId(), message));
+        newest().forEach(message -> merged.put(message.getMessageId(), message));
+
+        List<MessageResponse> kept = new ArrayList<>(merged.values())
+                .subList(0, Math.min(messages.length, merged.size()));
+        head = 0;
+        size = 0;
+        // Add oldest first so the newest message ends up at the head
+        for (int i = kept.size() - 1; i >= 0; i--) {
+            push(kept.get(i));
+        }
+        loaded = true;
+    }
+
+    /**
+     * Checks whether the messages of this buffer were loaded from the database.
+     *
+     * @return True if the buffer was loaded, false otherwise.
+     */
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Adds a message to the buffer in message ID order, evicting the oldest message if the buffer is full.
+     *
+     * @param message The message.
+     */
+    public synchronized void add(MessageResponse message) {
+        if (size > 0 && message.getMessageId() <= messages[head].getMessageId()) {
+            insert(message);
+            return;
+        }
+        push(message);
+    }
+
+    private void insert(MessageResponse message) {
+        List<MessageResponse> newestFirst = newest();
+        int index = 0;
+        while (index < newestFirst.size() && newestFirst.get(index).getMessageId() > message.getMessageId()) {
+            index++;
+        }
+        boolean duplicate = index < newestFirst.size()
+                && newestFirst.get(index).getMessageId().equals(message.getMessageId());
+        // A message older than every buffered one of a full buffer would be evicted right away
+        if (duplicate || index == messages.length) {
+            return;
+        }
+
+        newestFirst.add(index, message);
+        head = 0;
+        size = 0;
+        for (int i = Math.min(newestFirst.size(), messages.length) - 1; i >= 0; i--) {
+            push(newestFirst.get(i));
+        }
+    }
+
+    private void push(MessageResponse message) {
+        head = (head + 1) % messages.length;
+        messages[head] = message;
+        if (size < messages.length) {
+            size++;
+        }
+    }
+
+    /**
+     * Retrieves the messages in the buffer.
+     *
+     * @return The messages ordered from newest to oldest.
+     */
+    public synchronized List<MessageResponse> newest() {
+        List<MessageResponse> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(messages[(head - i + messages.length) % messages.length]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,98 @@
+package me.yattaw.usmsocial.messages.group;
+
+import lombok.RequiredArgsConstructor;
+import me.yattaw.usmsocial.entities.message.GroupMessage;
+import me.yattaw.usmsocial.messages.response.MessageResponse;
+import me.yattaw.usmsocial.repositories.GroupMessageRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service class that keeps the recent messages of active groups in memory.
+ *
+ * <p>
+ * The buffer of a group is loaded from the database the first time its messages are read and
+ * every message sent afterwards is appended to it, so reading a busy group chat does not query
+ * the database. An empty buffer is registered before the messages are queried, so a message sent
+ * while the buffer is being loaded is appended to it and merged with the loaded messages instead
+ * of being lost. The query runs outside the map's lock, so it never blocks other groups.
+ * </p>
+ *
+ * @version 17 April 2024
+ */
+@Service
+@RequiredArgsConstructor
+public class GroupMessageCache {
+
+    /**
+     * The number of recent messages kept and returned per group.
+     */
+    public static final int RECENT_MESSAGE_COUNT = 30;
+
+    /**
+     * The maximum number of groups kept in memory.
+     */
+    private static final int MAX_CACHED_GROUPS = 1_000;
+
+    private final GroupMessageRepository groupMessageRepository;
+
+    private final Map<Integer, GroupMessageBuffer> buffers = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, GroupMessageBuffer> eldest) {
+                    return size() > MAX_CACHED_GROUPS;
+                }
+            }
+    );
+
+    /**
+     * Retrieves the recent messages of a group, loading them from the database if not cached.
+     *
+     * @param groupId The ID of the group.
+     * @return The recent messages ordered from newest to oldest.
+     */
+    public List<MessageResponse> getRecentMessages(Integer groupId) {
+        GroupMessageBuffer buffer = buffers.computeIfAbsent(groupId, id -> new GroupMessageBuffer(RECENT_MESSAGE_COUNT));
+        if (!buffer.isLoaded()) {
+            buffer.load(groupMessageRepository.findRecentByGroup(groupId, Pageable.ofSize(RECENT_MESSAGE_COUNT)).stream()
+                    .map(GroupMessageCache::mapToMessageResponse)
+                    .toList());
+        }
+        return buffer.newest();
+    }
+
+    /**
+     * Appends a saved message to the buffer of its group if the group is cached.
+     *
+     * @param message The saved group message.
+     */
+    public void append(GroupMessage message) {
+        GroupMessageBuffer buffer = buffers.get(message.getGroup().getId());
+        if (buffer != null) {
+            buffer.add(mapToMessageResponse(message));
+        }
+    }
+
+    /**
+     * Maps a group message to its response representation.
+     *
+     * @param message The group message.
+     * @return The message response.
+     */
+    public static MessageResponse mapToMessageResponse(GroupMessage message) {
+        return MessageResponse.builder()
+                .messageId(message.getId())
+                .userId(message.getSender().getId())
+                .firstName(message.getSender().getFirstName())
+                .lastName(message.getSender().getLastName())
+                .content(message.getMessage())
+                .timestamp(message.getTimestamp())
+                .build();
+    }
+
+}
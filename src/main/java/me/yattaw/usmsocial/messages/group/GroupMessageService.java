@@ -11,9 +11,8 @@ import me.yattaw.usmsocial.post.request.UserPostRequest;
 import me.yattaw.usmsocial.repositories.GroupMessageRepository;
 import me.yattaw.usmsocial.repositories.UserGroupRepository;
 import me.yattaw.usmsocial.repositories.UserRepository;
-import me.yattaw.usmsocial.service.JwtService;
+import me.yattaw.usmsocial.service.CurrentUserService;
 import me.yattaw.usmsocial.user.responses.UserActionResponse;
-import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -38,7 +37,9 @@ public class GroupMessageService {
     private final UserRepository userRepository;
     private final UserGroupRepository userGroupRepository;
     private final GroupMessageRepository groupMessageRepository;
-    private final JwtService jwtService;
+    private final CurrentUserService currentUserService;
+    private final GroupMessageCache groupMessageCache;
+    private final GroupMembershipService groupMembershipService;
 
     /**
      * Retrieves messages for a specific group.
@@ -50,30 +51,15 @@ public class GroupMessageService {
      * @return List of MessageResponse objects containing messages if the operation was successful.
      */
     public List<MessageResponse> getGroupMessages(HttpServletRequest servletRequest, Integer groupId) {
-        String token = jwtService.extractToken(servletRequest);
-        Optional<User> user = userRepository.findByEmail(jwtService.fetchEmail(token));
+        Optional<User> user = currentUserService.getCurrentUser(servletRequest);
 
         // This should only happen if a user was deleted
         if (user.isEmpty()) {
             return Collections.emptyList();
         }
 
-        Optional<UserGroups> userGroup = userGroupRepository.findById(groupId);
-        if (userGroup.isPresent()) {
-            List<MessageResponse> responseList = new ArrayList<>();
-            List<GroupMessage> messages = groupMessageRepository.findTop30ByOrderByTimestampDesc(Pageable.ofSize(30));
-            messages.forEach(message -> {
-                responseList.add(
-                        MessageResponse.builder()
-                                .userId(message.getSender().getId())
-                                .firstName(message.getSender().getFirstName())
-                                .lastName(message.getSender().getLastName())
-                                .content(message.getMessage())
-                                .timestamp(message.getTimestamp())
-                                .build()
-                );
-            });
-            return responseList;
+        if (groupMembershipService.isMember(groupId, user.get().getId())) {
+            return groupMessageCache.getRecentMessages(groupId);
         }
 
         return Collections.emptyList();
@@ -89,8 +75,7 @@ public class GroupMessageService {
      * @return UserActionResponse indicating the success or failure of the operation.
      */
     public UserActionResponse createGroup(HttpServletRequest servletRequest, UserPostRequest request) {
-        String token = jwtService.extractToken(servletRequest);
-        Optional<User> user = userRepository.findByEmail(jwtService.fetchEmail(token));
+        Optional<User> user = currentUserService.getCurrentUser(servletRequest);
 
         // This should only happen if a user was deleted
         if (user.isEmpty()) {
@@ -110,6 +95,7 @@ public class GroupMessageService {
                 .build();
 
         userGroupRepository.save(group);
+        groupMembershipService.registerGroup(group.getId(), user.get().getId());
 
         return UserActionResponse.builder()
                 .status(1)
@@ -129,8 +115,7 @@ public class GroupMessageService {
      * @return UserActionResponse indicating the success or failure of the operation.
      */
     public UserActionResponse inviteGroupMember(HttpServletRequest servletRequest, Integer groupId, Integer userId) {
-        String token = jwtService.extractToken(servletRequest);
-        Optional<User> user = userRepository.findByEmail(jwtService.fetchEmail(token));
+        Optional<User> user = currentUserService.getCurrentUser(servletRequest);
 
         // This should only happen if a user was deleted
         if (user.isEmpty()) {
@@ -143,8 +128,10 @@ public class GroupMessageService {
         Optional<UserGroups> group = userGroupRepository.findById(groupId);
         Optional<User> invitedUser = userRepository.findById(userId);
 
-        if (group.isPresent() && invitedUser.isPresent()) {
-            group.get().getMembers().add(invitedUser.get());
+        // Only members can invite others to a group
+        if (group.isPresent() && invitedUser.isPresent()
+                && groupMembershipService.isMember(groupId, user.get().getId())) {
+            groupMembershipService.addMember(groupId, userId);
             return UserActionResponse.builder()
                     .status(1)
                     .message(String.format("Successfully invited %s %s to '%s' group.",
@@ -170,8 +157,7 @@ public class GroupMessageService {
      * @return UserActionResponse indicating the success or failure of the operation.
      */
     public UserActionResponse messageGroup(HttpServletRequest servletRequest, MessageSendRequest request, Integer id) {
-        String token = jwtService.extractToken(servletRequest);
-        Optional<User> user = userRepository.findByEmail(jwtService.fetchEmail(token));
+        Optional<User> user = currentUserService.getCurrentUser(servletRequest);
 
         // This should only happen if a user was deleted
         if (user.isEmpty()) {
@@ -181,16 +167,17 @@ public class GroupMessageService {
                     .build();
         }
 
-        Optional<UserGroups> group = userGroupRepository.findById(id);
-        if (group.isPresent() && group.get().getMembers().contains(user.get())) {
+        // Membership implies the group exists, so only a reference to the group is needed
+        if (groupMembershipService.isMember(id, user.get().getId())) {
             GroupMessage groupMessage = GroupMessage.builder()
-                    .group(group.get())
+                    .group(userGroupRepository.getReferenceById(id))
                     .message(request.getContent())
                     .sender(user.get())
                     .timestamp(LocalDateTime.now())
                     .build();
 
             groupMessageRepository.save(groupMessage);
+            groupMessageCache.append(groupMessage);
         } else {
             return UserActionResponse.builder()
                     .status(0)
@@ -27,6 +27,11 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class MessageResponse {
 
+    /**
+     * The ID of this message, used as the cursor when fetching newer messages.
+     */
+    private Integer messageId;
+
     /**
      * The ID of the user who sent this message.
      */
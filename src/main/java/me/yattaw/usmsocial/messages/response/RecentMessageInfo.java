@@ -10,7 +10,7 @@ import java.time.LocalDateTime;
  * Represents information about a recent message.
  *
  * <p>This class encapsulates details about a recent message, including the user ID of the sender,
- * the first name and last name of the sender, the sender's tagline, base64-encoded image,
+ * the first name and last name of the sender, the sender's tagline, profile picture URL,
  * the content of the last message sent, the full name of the last sender,
  * the ID of the last sender, and the timestamp of the last message.</p>
  *
@@ -48,9 +48,9 @@ public class RecentMessageInfo {
     private String tagLine;
 
     /**
-     * The base64-encoded image of the user who sent the last message.
+     * The URL of the profile picture of the user who sent the last message.
      */
-    private String base64Image;
+    private String avatarUrl;
 
     /**
      * The content of the last message sent.
@@ -71,4 +71,9 @@ public class RecentMessageInfo {
      * The timestamp when the last message was sent.
      */
     private LocalDateTime timestamp;
+
+    /**
+     * The number of messages received since the conversation was last read.
+     */
+    private Integer unreadCount;
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package me.yattaw.usmsocial.messages.stream;
+
+import me.yattaw.usmsocial.messages.response.MessageResponse;
+
+/**
+ * Application event published after a direct message has been sent.
+ *
+ * @param senderId   The ID of the user who sent the message.
+ * @param receiverId The ID of the user the message was sent to.
+ * @param message    The sent message.
+ *
+ * @version 17 April 2024
+ */
+public record DirectMessageSentEvent(Integer senderId, Integer receiverId, MessageResponse message) {
+}
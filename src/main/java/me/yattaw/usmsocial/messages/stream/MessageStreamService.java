@@ -0,0 +1,106 @@
+package me.yattaw.usmsocial.messages.stream;
+
+import me.yattaw.usmsocial.messages.response.MessageResponse;
+import me.yattaw.usmsocial.service.SseSubscriber;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * Service class that delivers direct messages to connected users over Server-Sent Events.
+ *
+ * <p>
+ * A user may hold several subscriptions, one per open client. When a {@link DirectMessageSentEvent}
+ * is published the message is sent as a <code>direct-message</code> event to every subscription of
+ * the receiver and of the sender, so all clients of a conversation stay in sync without reloading it.
+ * Clients that were disconnected catch up by fetching the messages after the last ID they received.
+ * Events are queued per subscription (see {@link SseSubscriber}), so a slow client does not delay the others.
+ * </p>
+ *
+ * @version 17 April 2024
+ */
+@Service
+public class MessageStreamService {
+
+    /**
+     * How long a subscription stays open before the client has to reconnect.
+     */
+    private static final Duration SUBSCRIPTION_TIMEOUT = Duration.ofMinutes(30);
+
+    private static final String DIRECT_MESSAGE_EVENT = "direct-message";
+
+    private final Executor streamExecutor;
+
+    private final Map<Integer, List<SseSubscriber>> subscriptions = new ConcurrentHashMap<>();
+
+    public MessageStreamService(@Qualifier("streamExecutor") Executor streamExecutor) {
+        this.streamExecutor = streamExecutor;
+    }
+
+    /**
+     * Opens a subscription to the direct messages of a user.
+     *
+     * @param userId The ID of the subscribing user.
+     * @return The emitter the messages are sent through.
+     */
+    public SseEmitter subscribe(Integer userId) {
+        SseSubscriber subscriber = new SseSubscriber(SUBSCRIPTION_TIMEOUT, streamExecutor);
+        subscriber.onClose(() -> unsubscribe(userId, subscriber));
+        subscriptions.computeIfAbsent(userId, id -> new CopyOnWriteArrayList<>()).add(subscriber);
+
+        return subscriber.getEmitter();
+    }
+
+    /**
+     * Delivers a direct message once it has been committed.
+     * Only queues the message, so it runs on the thread that committed it.
+     *
+     * @param event The sent message.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDirectMessageSent(DirectMessageSentEvent event) {
+        deliver(event.receiverId(), event.message());
+        if (!event.senderId().equals(event.receiverId())) {
+            deliver(event.senderId(), event.message());
+        }
+    }
+
+    /**
+     * Sends a comment to every subscription so connections closed by the client are detected
+     * and proxies do not drop idle connections.
+     */
+    @Scheduled(fixedDelay = 30_000)
+    public void heartbeat() {
+        subscriptions.values().forEach(subscribers ->
+                subscribers.forEach(subscriber -> subscriber.send(SseEmitter.event().comment("heartbeat"))));
+    }
+
+    private void deliver(Integer userId, MessageResponse message) {
+        List<SseSubscriber> subscribers = subscriptions.get(userId);
+        if (subscribers == null) {
+            return;
+        }
+
+        subscribers.forEach(subscriber -> subscriber.send(SseEmitter.event()
+                .name(DIRECT_MESSAGE_EVENT)
+                .id(String.valueOf(message.getMessageId()))
+                .data(message)));
+    }
+
+    private void unsubscribe(Integer userId, SseSubscriber subscriber) {
+        subscriptions.computeIfPresent(userId, (id, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+}
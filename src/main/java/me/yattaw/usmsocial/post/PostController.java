@@ -3,20 +3,24 @@ package me.yattaw.usmsocial.post;
 import lombok.RequiredArgsConstructor;
 import me.yattaw.usmsocial.user.responses.UserActionResponse;
 import me.yattaw.usmsocial.post.request.UserPostRequest;
+import me.yattaw.usmsocial.post.response.PostCommentSliceResponse;
 import me.yattaw.usmsocial.user.requests.UserRequest;
 import me.yattaw.usmsocial.post.response.PostFormatResponse;
 import me.yattaw.usmsocial.post.response.PostNewInfoResponse;
 import me.yattaw.usmsocial.post.response.PostNewResponse;
 import me.yattaw.usmsocial.post.response.PostResponse;
+import me.yattaw.usmsocial.post.response.PostSliceResponse;
 import me.yattaw.usmsocial.post.response.PostUserCountResponse;
 
 import java.time.LocalDateTime;
 
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 /**
  * Control the functions of posts, including creating, deleting, liking,
@@ -77,18 +81,27 @@ public class PostController {
     /**
      * Retrieves recommended posts.
      *
-     * <p>This endpoint retrieves recommended posts based on the specified criteria such as date, page number, and page size.</p>
+     * <p>This endpoint retrieves recommended posts based on the specified criteria such as date, page number, and page size.
+     * With <code>ranked=true</code> the posts are ranked by engagement, recency and the user's affinity to the authors
+     * instead of being listed newest first, and the date is ignored.</p>
      *
      * @param dateTime   The date and time for retrieving recommended posts.
      * @param pageNumber The page number for pagination.
      * @param pageSize   The size of each page for pagination.
+     * @param ranked     Whether to rank the posts instead of listing them newest first.
      * @return ResponseEntity containing recommended posts if the operation was successful.
      */
     @GetMapping("/recommended")
     public ResponseEntity<ResponseEntity<PostResponse>> getRecommendedPosts(
                 @RequestParam(name = "datetime", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateTime,
                 @RequestParam Integer pageNumber,
-                @RequestParam Integer pageSize) {
+                @RequestParam Integer pageSize,
+                @RequestParam(defaultValue = "false") boolean ranked) {
+
+        if (ranked) {
+                return ResponseEntity.ok(service.getRankedRecommendedPosts(((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest(),
+                                pageNumber, pageSize));
+        }
 
         if (dateTime == null) {
                 dateTime = LocalDateTime.now();
@@ -98,6 +111,41 @@ public class PostController {
                         dateTime, pageNumber, pageSize));
     }
 
+    /**
+     * Retrieves recommended posts using a cursor.
+     *
+     * <p>This endpoint retrieves recommended posts after the position described by the cursor. Unlike
+     * {@code /recommended}, the cost of a request does not grow with the depth of the scroll.</p>
+     *
+     * @param cursor   The cursor returned with the previous slice, omitted for the first slice.
+     * @param pageSize The size of each slice.
+     * @return ResponseEntity containing recommended posts and the next cursor if the operation was successful.
+     */
+    @GetMapping("/recommended/cursor")
+    public ResponseEntity<ResponseEntity<PostSliceResponse>> getRecommendedPostsSlice(
+                @RequestParam(name = "cursor", required = false) String cursor,
+                @RequestParam Integer pageSize) {
+        return ResponseEntity.ok(service.getRecommendedPostsSlice(((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest(),
+                        cursor, pageSize));
+    }
+
+    /**
+     * Retrieves the home timeline of the current user.
+     *
+     * <p>This endpoint retrieves the posts of the current user and of the users they follow, newest first.</p>
+     *
+     * @param pageNumber The page number for pagination.
+     * @param pageSize   The size of each page for pagination.
+     * @return ResponseEntity containing the timeline posts if the operation was successful.
+     */
+    @GetMapping("/timeline")
+    public ResponseEntity<ResponseEntity<PostResponse>> getTimelinePosts(
+                @RequestParam Integer pageNumber,
+                @RequestParam Integer pageSize) {
+        return ResponseEntity.ok(service.getTimelinePosts(((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest(),
+                        pageNumber, pageSize));
+    }
+
     /**
      * Retrieves new recommended posts.
      *
@@ -133,6 +181,19 @@ public class PostController {
         return ResponseEntity.ok(service.getNewRecommendedPostsCount(lastFetchDateTime, serverLocalTime));
     }
 
+    /**
+     * Subscribes to new recommended posts.
+     *
+     * <p>This endpoint keeps the connection open and sends a <code>new-posts</code> event with the
+     * count of new posts whenever a post is created, replacing polling of the count endpoint.</p>
+     *
+     * @return SseEmitter the new post notifications are sent through.
+     */
+    @GetMapping(value = "/new/stream/recommended", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamNewRecommendedPosts() {
+        return service.subscribeToNewPosts(((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest(), null);
+    }
+
     /**
      * Retrieves the content of a post.
      *
@@ -146,6 +207,24 @@ public class PostController {
         return ResponseEntity.ok(service.getPost(((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest(), id));
     }
 
+    /**
+     * Retrieves the comments of a post.
+     *
+     * <p>This endpoint retrieves the comments of a post identified by the post ID, newest first, after the position described by the cursor.</p>
+     *
+     * @param id       The ID of the post.
+     * @param cursor   The cursor returned with the previous slice, omitted for the first slice.
+     * @param pageSize The size of each slice.
+     * @return ResponseEntity containing the comments and the next cursor if the operation was successful.
+     */
+    @GetMapping("/{id}/comments")
+    public ResponseEntity<ResponseEntity<PostCommentSliceResponse>> getPostComments(@PathVariable Integer id,
+                @RequestParam(name = "cursor", required = false) String cursor,
+                @RequestParam Integer pageSize) {
+        return ResponseEntity.ok(service.getPostComments(((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest(),
+                id, cursor, pageSize));
+    }
+
     /**
      * Retrieves posts created by a specific user.
      *
@@ -170,6 +249,24 @@ public class PostController {
                 id, dateTime, pageNumber, pageSize));
     }
 
+    /**
+     * Retrieves posts created by a specific user using a cursor.
+     *
+     * <p>This endpoint retrieves posts created by a user identified by the user ID after the position described by the cursor.</p>
+     *
+     * @param id       The ID of the user.
+     * @param cursor   The cursor returned with the previous slice, omitted for the first slice.
+     * @param pageSize The size of each slice.
+     * @return ResponseEntity containing user posts and the next cursor if the operation was successful.
+     */
+    @GetMapping("/user/{id}/cursor")
+    public ResponseEntity<ResponseEntity<PostSliceResponse>> getUserPostsSlice(@PathVariable Integer id,
+                @RequestParam(name = "cursor", required = false) String cursor,
+                @RequestParam Integer pageSize) {
+        return ResponseEntity.ok(service.getUserPostsSlice(((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest(),
+                id, cursor, pageSize));
+    }
+
     /**
      * Retrieves new posts created by a specific user.
      *
@@ -207,6 +304,20 @@ public class PostController {
         return ResponseEntity.ok(service.getNewUserPostCount(id, lastFetchDateTime, serverLocalTime));
     }
 
+    /**
+     * Subscribes to new posts created by a specific user.
+     *
+     * <p>This endpoint keeps the connection open and sends a <code>new-posts</code> event with the
+     * count of new posts whenever the user identified by the user ID creates a post.</p>
+     *
+     * @param id The ID of the user.
+     * @return SseEmitter the new post notifications are sent through.
+     */
+    @GetMapping(value = "/new/stream/user/{id}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamNewUserPosts(@PathVariable Integer id) {
+        return service.subscribeToNewPosts(((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest(), id);
+    }
+
     /**
      * Retrieves the count of posts created by a specific user.
      *
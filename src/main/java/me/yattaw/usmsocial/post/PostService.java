@@ -5,35 +5,56 @@ import lombok.RequiredArgsConstructor;
 import me.yattaw.usmsocial.auth.AuthenticationService;
 import me.yattaw.usmsocial.entities.post.PostComment;
 import me.yattaw.usmsocial.entities.post.PostLike;
+import me.yattaw.usmsocial.entities.user.AvatarSize;
 import me.yattaw.usmsocial.entities.user.Role;
 import me.yattaw.usmsocial.entities.user.User;
 import me.yattaw.usmsocial.entities.user.UserPost;
+import me.yattaw.usmsocial.post.cursor.PostCursor;
+import me.yattaw.usmsocial.post.like.LikeCounterService;
+import me.yattaw.usmsocial.post.ranking.PostRankingService;
+import me.yattaw.usmsocial.post.stream.PostCreatedEvent;
+import me.yattaw.usmsocial.post.stream.PostStreamService;
+import me.yattaw.usmsocial.post.timeline.TimelineService;
 import me.yattaw.usmsocial.repositories.CommentRepository;
 import me.yattaw.usmsocial.repositories.LikeRepository;
 import me.yattaw.usmsocial.repositories.PostRepository;
-import me.yattaw.usmsocial.repositories.UserRepository;
-import me.yattaw.usmsocial.service.JwtService;
+import me.yattaw.usmsocial.service.CurrentUserService;
 import me.yattaw.usmsocial.user.responses.AuthenicationException;
 import me.yattaw.usmsocial.user.responses.UserActionResponse;
 import me.yattaw.usmsocial.post.request.UserPostRequest;
 import me.yattaw.usmsocial.user.requests.UserRequest;
 import me.yattaw.usmsocial.post.response.PostCommentResponse;
+import me.yattaw.usmsocial.post.response.PostCommentSliceResponse;
 import me.yattaw.usmsocial.post.response.PostFormatResponse;
 import me.yattaw.usmsocial.post.response.PostNewInfoResponse;
 import me.yattaw.usmsocial.post.response.PostNewResponse;
 import me.yattaw.usmsocial.post.response.PostResponse;
+import me.yattaw.usmsocial.post.response.PostSliceResponse;
 import me.yattaw.usmsocial.post.response.PostUserCountResponse;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -53,13 +74,27 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class PostService {
 
-    private final UserRepository userRepository;
+    /**
+     * The number of newest comments included with each post of a feed.
+     */
+    private static final int PREVIEW_COMMENT_COUNT = 3;
+
+    /**
+     * The largest slice returned by the keyset pagination methods, larger requested sizes are reduced to it.
+     */
+    private static final int MAX_SLICE_SIZE = 100;
+
     private final PostRepository postRepository;
     private final LikeRepository likeRepository;
     private final CommentRepository commentRepository;
 
-    private final JwtService jwtService;
+    private final CurrentUserService currentUserService;
     private final AuthenticationService authenticationService;
+    private final TimelineService timelineService;
+    private final LikeCounterService likeCounterService;
+    private final PostRankingService postRankingService;
+    private final PostStreamService postStreamService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Retrieves the current user from the request.
@@ -68,8 +103,7 @@ public class PostService {
      * @return Optional of the current user if found, otherwise empty.
      */
     private Optional<User> getCurrentUser(HttpServletRequest servletRequest) {
-        String token = jwtService.extractToken(servletRequest);
-        return userRepository.findByEmail(jwtService.fetchEmail(token));
+        return currentUserService.getCurrentUser(servletRequest);
     }
 
     /**
@@ -85,9 +119,16 @@ public class PostService {
                 throw new AuthenicationException("Only users can access");
         }
 
+        List<Integer> postIds = new ArrayList<>();
+        posts.forEach(post -> postIds.add(post.getId()));
+        if (postIds.isEmpty()) {
+            return;
+        }
+
+        // Resolve the like state of the whole page in a single query
+        Set<Integer> likedPostIds = new HashSet<>(likeRepository.getLikedPostIds(user.get().getId(), postIds));
         for (PostFormatResponse post : posts) {
-                Integer count = likeRepository.getCountOfUserAndPostLikes(user.get().getId(), post.getId());
-                post.setLiked((count > 0));
+                post.setLiked(likedPostIds.contains(post.getId()));
         }
     }
 
@@ -103,11 +144,7 @@ public class PostService {
             UserPostRequest request
     ) {
 
-        String token = jwtService.extractToken(servletRequest);
-
-        Optional<User> user = userRepository.findByEmail(
-                jwtService.fetchEmail(token)
-        );
+        Optional<User> user = getCurrentUser(servletRequest);
 
         // This should only happen if a user was deleted
         if (user.isEmpty()) {
@@ -124,6 +161,8 @@ public class PostService {
                 .build();
 
         postRepository.save(userPost);
+        timelineService.fanOutPost(user.get().getId(), userPost.getId());
+        eventPublisher.publishEvent(new PostCreatedEvent(user.get().getId(), userPost.getId()));
 
         return UserActionResponse.builder()
                 .status(1)
@@ -144,11 +183,7 @@ public class PostService {
             UserPostRequest request
     ) {
 
-        String token = jwtService.extractToken(servletRequest);
-
-        Optional<User> user = userRepository.findByEmail(
-                jwtService.fetchEmail(token)
-        );
+        Optional<User> user = getCurrentUser(servletRequest);
 
         // This should only happen if a user was deleted
         if (user.isEmpty()) {
@@ -175,6 +210,8 @@ public class PostService {
                 .build();
 
         commentRepository.save(postComment);
+        postRepository.incrementCommentCount(userPost.get().getId());
+        postRankingService.recordComment(userPost.get(), likeCounterService.getLikeCount(userPost.get()));
 
         return UserActionResponse.builder()
                 .status(1)
@@ -193,7 +230,7 @@ public class PostService {
     public ResponseEntity<PostFormatResponse> getPost(HttpServletRequest servletRequest, Integer id) {
         authenticationService.isAuthorizedAccess(servletRequest);
         UserPost post = postRepository.getReferenceById(id);
-        PostFormatResponse postReturn = this.mapToSimplifiedPostResponse(post);
+        PostFormatResponse postReturn = mapToSimplifiedPostResponses(List.of(post)).get(0);
 
         return ResponseEntity.ok(postReturn);
     }
@@ -213,7 +250,7 @@ public class PostService {
     ) {
         PageRequest pageRequest = PageRequest.of(pageNumber, pageSize, Sort.by(Sort.Direction.DESC, "timestamp"));
         Page<UserPost> postsResult = postRepository.getRecommended(dateTime, pageRequest);
-        Page<PostFormatResponse> posts = postsResult.map(this::mapToSimplifiedPostResponse);
+        Page<PostFormatResponse> posts = mapToSimplifiedPostResponses(postsResult);
 
         updateIsLiked(servletRequest, posts);
 
@@ -224,6 +261,82 @@ public class PostService {
                         .build());
     }
 
+    /**
+     * Retrieves recommended posts ranked by engagement, recency and the current user's affinity to the authors.
+     *
+     * @param servletRequest The servlet request containing the user token.
+     * @param pageNumber     The page number for pagination.
+     * @param pageSize       The size of each page for pagination.
+     * @return ResponseEntity containing the ranked recommended posts.
+     */
+    public ResponseEntity<PostResponse> getRankedRecommendedPosts(
+        HttpServletRequest servletRequest,
+        Integer pageNumber, Integer pageSize
+    ) {
+        Integer viewerId = getCurrentUser(servletRequest).map(User::getId).orElse(null);
+
+        Page<Integer> postIds = postRankingService.getRankedPage(viewerId, pageNumber, pageSize);
+        Page<PostFormatResponse> posts = mapToSimplifiedPostResponses(findPostsInOrder(postIds));
+
+        updateIsLiked(servletRequest, posts.getContent());
+
+        return ResponseEntity.ok(
+                PostResponse.builder()
+                        .pageResult(posts)
+                        .dateTimeFetch(LocalDateTime.now())
+                        .build());
+    }
+
+    /**
+     * Retrieves recommended posts using keyset pagination.
+     *
+     * @param servletRequest The servlet request containing the user token.
+     * @param cursor         The cursor returned with the previous slice, or null for the first slice.
+     * @param pageSize       The size of each slice, at most {@link #MAX_SLICE_SIZE}.
+     * @return ResponseEntity containing recommended posts and the cursor of the next slice.
+     */
+    public ResponseEntity<PostSliceResponse> getRecommendedPostsSlice(
+        HttpServletRequest servletRequest,
+        String cursor, Integer pageSize
+    ) {
+        int sliceSize = toSliceSize(pageSize);
+        PostCursor position = decodeCursor(cursor);
+        List<UserPost> posts = postRepository.getRecommendedAfter(position.getTimestamp(), position.getId(), sliceSize + 1);
+
+        return ResponseEntity.ok(mapToPostSliceResponse(servletRequest, posts, sliceSize));
+    }
+
+    /**
+     * Retrieves the home timeline of the current user, containing the posts of the user
+     * and of the users they follow.
+     *
+     * @param servletRequest The servlet request containing the user token.
+     * @param pageNumber     The page number for pagination.
+     * @param pageSize       The size of each page for pagination.
+     * @return ResponseEntity containing the timeline posts.
+     */
+    public ResponseEntity<PostResponse> getTimelinePosts(
+        HttpServletRequest servletRequest,
+        Integer pageNumber, Integer pageSize
+    ) {
+        Optional<User> user = getCurrentUser(servletRequest);
+
+        if (user.isEmpty() || user.get().getRole() == Role.GUEST) {
+            throw new AuthenicationException("Only users can access");
+        }
+
+        Page<Integer> postIds = timelineService.getTimelinePage(user.get().getId(), pageNumber, pageSize);
+        Page<PostFormatResponse> posts = mapToSimplifiedPostResponses(findPostsInOrder(postIds));
+
+        updateIsLiked(servletRequest, posts.getContent());
+
+        return ResponseEntity.ok(
+                PostResponse.builder()
+                        .pageResult(posts)
+                        .dateTimeFetch(LocalDateTime.now())
+                        .build());
+    }
+
     /**
      * Retrieves new recommended posts.
      *
@@ -238,7 +351,7 @@ public class PostService {
         LocalDateTime serverDateTime
     ) {
         List<UserPost> posts = postRepository.getNewRecommendedPosts(serverDateTime, fetchDataTime);
-        List<PostFormatResponse> postsResult = posts.stream().map(this::mapToSimplifiedPostResponse).collect(Collectors.toList());
+        List<PostFormatResponse> postsResult = mapToSimplifiedPostResponses(posts);
 
         updateIsLiked(servletRequest, postsResult);
 
@@ -283,12 +396,31 @@ public class PostService {
                 Integer userId, LocalDateTime dateTime, Integer pageNumber, Integer pageSize) {
         PageRequest pageRequest = PageRequest.of(pageNumber, pageSize, Sort.by(Sort.Direction.DESC, "timestamp"));
         Page<UserPost> posts = postRepository.getUserPosts(userId, dateTime, pageRequest);
-        Page<PostFormatResponse> pageResult = posts.map(this::mapToSimplifiedPostResponse);
+        Page<PostFormatResponse> pageResult = mapToSimplifiedPostResponses(posts);
 
         updateIsLiked(servletRequest, pageResult);
         return ResponseEntity.ok(PostResponse.builder().pageResult(pageResult).dateTimeFetch(dateTime).build());
     }
 
+    /**
+     * Retrieves posts created by a specific user using keyset pagination.
+     *
+     * @param servletRequest The servlet request containing the user token.
+     * @param userId         The ID of the user.
+     * @param cursor         The cursor returned with the previous slice, or null for the first slice.
+     * @param pageSize       The size of each slice, at most {@link #MAX_SLICE_SIZE}.
+     * @return ResponseEntity containing user posts and the cursor of the next slice.
+     */
+    public ResponseEntity<PostSliceResponse> getUserPostsSlice(
+                HttpServletRequest servletRequest,
+                Integer userId, String cursor, Integer pageSize) {
+        int sliceSize = toSliceSize(pageSize);
+        PostCursor position = decodeCursor(cursor);
+        List<UserPost> posts = postRepository.getUserPostsAfter(userId, position.getTimestamp(), position.getId(), sliceSize + 1);
+
+        return ResponseEntity.ok(mapToPostSliceResponse(servletRequest, posts, sliceSize));
+    }
+
     /**
      * Retrieves new posts created by a specific user.
      *
@@ -304,7 +436,7 @@ public class PostService {
         LocalDateTime fetchDataTime,
         LocalDateTime serverDateTime) {
         List<UserPost> posts = postRepository.getNewUserPosts(userId, serverDateTime, fetchDataTime);
-        List<PostFormatResponse> postsResult = posts.stream().map(this::mapToSimplifiedPostResponse).collect(Collectors.toList());
+        List<PostFormatResponse> postsResult = mapToSimplifiedPostResponses(posts);
         
         updateIsLiked(servletRequest, postsResult);
 
@@ -336,6 +468,57 @@ public class PostService {
                         .serverDateTime(serverDateTime).build());
     }
 
+    /**
+     * Opens a Server-Sent Events subscription that is notified whenever a new post is created.
+     *
+     * @param servletRequest The servlet request containing the user token.
+     * @param authorId       The ID of the user whose posts to subscribe to, or null for every post.
+     * @return The emitter the new post notifications are sent through.
+     */
+    public SseEmitter subscribeToNewPosts(HttpServletRequest servletRequest, Integer authorId) {
+        authenticationService.isAuthorizedAccess(servletRequest);
+        return postStreamService.subscribe(authorId);
+    }
+
+    /**
+     * Retrieves the comments of a post using keyset pagination, newest first.
+     *
+     * @param servletRequest The servlet request containing the user token.
+     * @param postId         The ID of the post.
+     * @param cursor         The cursor returned with the previous slice, or null for the first slice.
+     * @param pageSize       The size of each slice, at most {@link #MAX_SLICE_SIZE}.
+     * @return ResponseEntity containing the comments and the cursor of the next slice.
+     */
+    public ResponseEntity<PostCommentSliceResponse> getPostComments(
+            HttpServletRequest servletRequest,
+            Integer postId, String cursor, Integer pageSize
+    ) {
+        authenticationService.isAuthorizedAccess(servletRequest);
+
+        int sliceSize = toSliceSize(pageSize);
+        PostCursor position = decodeCursor(cursor);
+        List<PostComment> comments = commentRepository.getCommentsAfter(
+                postId, position.getTimestamp(), position.getId(), Pageable.ofSize(sliceSize + 1));
+
+        // One extra comment is fetched to know whether there is a next slice
+        boolean hasNext = comments.size() > sliceSize;
+        List<PostComment> page = hasNext ? comments.subList(0, sliceSize) : comments;
+
+        String nextCursor = null;
+        if (hasNext) {
+            PostComment last = page.get(page.size() - 1);
+            nextCursor = new PostCursor(last.getTimestamp(), last.getCommentId()).encode();
+        }
+
+        return ResponseEntity.ok(PostCommentSliceResponse.builder()
+                .sliceResult(new SliceImpl<>(
+                        page.stream().map(this::mapToPostCommentResponse).collect(Collectors.toList()),
+                        PageRequest.ofSize(sliceSize),
+                        hasNext))
+                .nextCursor(nextCursor)
+                .build());
+    }
+
     /**
      * Retrieves the count of posts created by a specific user.
      *
@@ -351,26 +534,111 @@ public class PostService {
     }
 
     //helper method
-    private PostFormatResponse mapToSimplifiedPostResponse(UserPost post) {
+    private static int toSliceSize(Integer pageSize) {
+        if (pageSize == null || pageSize < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "You must enter a page size of at least 1.");
+        }
+        return Math.min(pageSize, MAX_SLICE_SIZE);
+    }
+
+    //helper method
+    private static PostCursor decodeCursor(String cursor) {
+        try {
+            return PostCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    //helper method
+    private PostSliceResponse mapToPostSliceResponse(
+            HttpServletRequest servletRequest,
+            List<UserPost> posts, Integer pageSize
+    ) {
+        // One extra post is fetched to know whether there is a next slice
+        boolean hasNext = posts.size() > pageSize;
+        List<UserPost> page = hasNext ? posts.subList(0, pageSize) : posts;
+        List<PostFormatResponse> postsResult = mapToSimplifiedPostResponses(page);
+
+        updateIsLiked(servletRequest, postsResult);
+
+        String nextCursor = null;
+        if (hasNext) {
+            UserPost last = page.get(page.size() - 1);
+            nextCursor = new PostCursor(last.getTimestamp(), last.getId()).encode();
+        }
+
+        return PostSliceResponse.builder()
+                .sliceResult(new SliceImpl<>(postsResult, PageRequest.ofSize(pageSize), hasNext))
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    //helper method
+    private List<UserPost> findPostsInOrder(List<Integer> postIds) {
+        Map<Integer, UserPost> postsById = postRepository.findAllById(postIds).stream()
+                .collect(Collectors.toMap(UserPost::getId, Function.identity()));
+
+        // Posts deleted since they were added to a timeline are skipped
+        return postIds.stream().map(postsById::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    //helper method
+    private Page<UserPost> findPostsInOrder(Page<Integer> postIds) {
+        List<UserPost> posts = findPostsInOrder(postIds.getContent());
+        // Skipped posts no longer exist, so they are not counted in the total either
+        long total = postIds.getTotalElements() - (postIds.getNumberOfElements() - posts.size());
+        return new PageImpl<>(posts, postIds.getPageable(), total);
+    }
+
+    //helper method
+    private Page<PostFormatResponse> mapToSimplifiedPostResponses(Page<UserPost> posts) {
+        return new PageImpl<>(mapToSimplifiedPostResponses(posts.getContent()), posts.getPageable(), posts.getTotalElements());
+    }
+
+    //helper method
+    private List<PostFormatResponse> mapToSimplifiedPostResponses(List<UserPost> posts) {
+        if (posts.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-        return PostFormatResponse.builder()
+        List<Integer> postIds = posts.stream().map(UserPost::getId).collect(Collectors.toList());
+
+        // Load the newest comments and the comment counts of the whole page at once
+        Map<Integer, List<PostCommentResponse>> newestComments = new HashMap<>();
+        List<Long> commentIds = commentRepository.getNewestCommentIds(postIds, PREVIEW_COMMENT_COUNT);
+        if (!commentIds.isEmpty()) {
+            commentRepository.findAllWithUserByIds(commentIds).forEach(comment -> newestComments
+                    .computeIfAbsent(comment.getPost().getId(), postId -> new ArrayList<>(PREVIEW_COMMENT_COUNT))
+                    .add(mapToPostCommentResponse(comment)));
+        }
+
+        Map<Integer, Integer> commentCounts = new HashMap<>();
+        for (Object[] row : commentRepository.getCommentCounts(postIds)) {
+            commentCounts.put((Integer) row[0], ((Number) row[1]).intValue());
+        }
+
+        return posts.stream().map(post -> PostFormatResponse.builder()
                 .id(post.getId())
                 .content(post.getContent())
                 .postUserInfo(post.getUser().getPostUserInfo())
-                //TODO: make the code only fetch 10 comments at a time
-                .comments(
-                        post.getComments().stream().map(comment -> PostCommentResponse.builder()
-                                .commentId(comment.getCommentId())
-                                .content(comment.getContent())
-                                .commenterFirstName(comment.getUser().getFirstName())
-                                .commenterLastName(comment.getUser().getLastName())
-                                .profilePictureBase64(comment.getUser().getBase64ProfilePicture())
-                                .timestamp(comment.getTimestamp())
-                                .build()).collect(Collectors.toCollection(() -> new ArrayList<>(post.getComments().size()))
-                        ))
+                .comments(newestComments.getOrDefault(post.getId(), new ArrayList<>()))
+                .commentCount(commentCounts.getOrDefault(post.getId(), 0))
                 .isLiked(false)
                 .timestamp(post.getTimestamp())
-                .likeCount(postRepository.getLikeCount(post.getId())) // Find a better way of doing this if possible
+                .likeCount(likeCounterService.getLikeCount(post))
+                .build()).collect(Collectors.toList());
+    }
+
+    //helper method
+    private PostCommentResponse mapToPostCommentResponse(PostComment comment) {
+        return PostCommentResponse.builder()
+                .commentId(comment.getCommentId())
+                .content(comment.getContent())
+                .commenterFirstName(comment.getUser().getFirstName())
+                .commenterLastName(comment.getUser().getLastName())
+                .profilePictureUrl(comment.getUser().getAvatarUrl(AvatarSize.SMALL))
+                .timestamp(comment.getTimestamp())
                 .build();
     }
 
@@ -388,11 +656,7 @@ public class PostService {
             boolean addLike
     ) {
 
-        String token = jwtService.extractToken(servletRequest);
-
-        Optional<User> user = userRepository.findByEmail(
-                jwtService.fetchEmail(token)
-        );
+        Optional<User> user = getCurrentUser(servletRequest);
 
         // This should only happen if a user was deleted
         if (user.isEmpty()) {
@@ -405,24 +669,30 @@ public class PostService {
         Optional<UserPost> userPost = postRepository.findById(request.getTargetId());
         if (userPost.isPresent()) {
             // Check if the user has already liked the post
-            if (userPost.get().getLikes().stream().anyMatch(like -> like.getUser().equals(user.get()))) {
+            Optional<PostLike> existingLike = likeRepository.findByUserAndPost(user.get(), userPost.get());
+            if (existingLike.isPresent()) {
                 if (addLike) {
                     return UserActionResponse.builder()
                             .status(0)
                             .message("User has already liked this post.")
                             .build();
-                } else {
-                    for (PostLike like : userPost.get().getLikes()) {
-                        if (like.getUser().equals(user.get())) {
-                            userPost.get().removeLike(like);
-                            likeRepository.delete(like);
-                            return UserActionResponse.builder()
-                                    .status(1)
-                                    .message("User has successfully removed like to post.")
-                                    .build();
-                        }
-                    }
                 }
+
+                likeRepository.delete(existingLike.get());
+                likeCounterService.adjust(userPost.get().getId(), -1);
+                postRankingService.recordLike(userPost.get(), likeCounterService.getLikeCount(userPost.get()),
+                        user.get().getId(), -1);
+                return UserActionResponse.builder()
+                        .status(1)
+                        .message("User has successfully removed like to post.")
+                        .build();
+            }
+
+            if (!addLike) {
+                return UserActionResponse.builder()
+                        .status(0)
+                        .message("User has not liked this post.")
+                        .build();
             }
 
             PostLike postLike = PostLike.builder()
@@ -431,8 +701,10 @@ public class PostService {
                     .timestamp(LocalDateTime.now())
                     .build();
 
-            userPost.get().addLike(postLike);
             likeRepository.save(postLike);
+            likeCounterService.adjust(userPost.get().getId(), 1);
+            postRankingService.recordLike(userPost.get(), likeCounterService.getLikeCount(userPost.get()),
+                    user.get().getId(), 1);
 
             return UserActionResponse.builder()
                     .status(1)
@@ -458,11 +730,7 @@ public class PostService {
             UserRequest request
     ) {
 
-        String token = jwtService.extractToken(servletRequest);
-
-        Optional<User> user = userRepository.findByEmail(
-                jwtService.fetchEmail(token)
-        );
+        Optional<User> user = getCurrentUser(servletRequest);
 
         Optional<UserPost> userPost = postRepository.findById(request.getTargetId());
 
@@ -475,11 +743,13 @@ public class PostService {
         }
 
         if (userPost.isPresent()) {
-            if (userPost.get().getUser().equals(user.get())) {
+            if (Objects.equals(userPost.get().getUser().getId(), user.get().getId())) {
                 // Delete posts and all likes and comments attached to post
                 commentRepository.deleteAll(userPost.get().getComments());
                 likeRepository.deleteAll(userPost.get().getLikes());
                 postRepository.delete(userPost.get());
+                timelineService.removePost(userPost.get().getId());
+                postRankingService.removePost(userPost.get().getId());
 
                 return UserActionResponse.builder()
                         .status(1)
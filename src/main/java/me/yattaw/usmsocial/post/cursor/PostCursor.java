@@ -0,0 +1,79 @@
+package me.yattaw.usmsocial.post.cursor;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Represents the position of the last item of a page in a feed ordered by
+ * descending timestamp and ID.
+ *
+ * <p>Cursors are handed to clients as opaque URL-safe strings and passed back to fetch the next page,
+ * which lets the database seek directly to the position instead of skipping over an offset.</p>
+ *
+ * @version 17 April 2024
+ */
+@Getter
+@AllArgsConstructor
+public class PostCursor {
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * The timestamp of the last item of the page.
+     */
+    private LocalDateTime timestamp;
+
+    /**
+     * The ID of the last item of the page, used to break ties between equal timestamps.
+     */
+    private long id;
+
+    /**
+     * Creates a cursor positioned before every item created up to now.
+     *
+     * @return The cursor of the first page.
+     */
+    public static PostCursor first() {
+        return new PostCursor(LocalDateTime.now(), Long.MAX_VALUE);
+    }
+
+    /**
+     * Decodes a cursor previously produced by {@link #encode()}.
+     *
+     * @param cursor The encoded cursor, or null for the first page.
+     * @return The decoded cursor.
+     * @throws IllegalArgumentException If the cursor is malformed.
+     */
+    public static PostCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return first();
+        }
+
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(SEPARATOR);
+            return new PostCursor(
+                    LocalDateTime.parse(decoded.substring(0, separator)),
+                    Long.parseLong(decoded.substring(separator + 1))
+            );
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("You must enter a valid cursor.");
+        }
+    }
+
+    /**
+     * Encodes this cursor as an opaque URL-safe string.
+     *
+     * @return The encoded cursor.
+     */
+    public String encode() {
+        String raw = timestamp + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
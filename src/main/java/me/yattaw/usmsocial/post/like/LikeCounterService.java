@@ -0,0 +1,116 @@
+package me.yattaw.usmsocial.post.like;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import me.yattaw.usmsocial.entities.user.UserPost;
+import me.yattaw.usmsocial.service.MigrationService;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service class that maintains the denormalized <code>like_count</code> column of posts.
+ *
+ * <p>
+ * Liking or unliking a post only records a delta in memory. The deltas are written back to
+ * <code>usm_social_posts</code> in a single batch every few seconds, so rendering a post never
+ * has to count the rows of <code>usm_social_post_likes</code>.
+ * </p>
+ *
+ * @version 17 April 2024
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@DependsOn("entityManagerFactory")
+public class LikeCounterService {
+
+    private static final String FLUSH_SQL = "UPDATE usm_social_posts SET like_count = like_count + ? WHERE post_id = ?";
+
+    private static final String BACKFILL_SQL = "UPDATE usm_social_posts p SET like_count = " +
+            "(SELECT COUNT(*) FROM usm_social_post_likes l WHERE l.post_id = p.post_id)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MigrationService migrationService;
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * Like count changes that have not been written to the database yet, keyed by post ID.
+     * Each key is updated atomically, so concurrent likes on different posts do not contend.
+     */
+    private final Map<Integer, Integer> pendingDeltas = new ConcurrentHashMap<>();
+
+    /**
+     * Computes the stored like counts of posts created before the column existed. Runs once,
+     * before any requests are served; afterwards the counts are only changed by {@link #flush()}.
+     */
+    @PostConstruct
+    public void backfill() {
+        migrationService.runOnce("post_like_counts", () -> {
+            int updated = jdbcTemplate.update(BACKFILL_SQL);
+            log.info("Backfilled like counts of {} posts", updated);
+        });
+    }
+
+    /**
+     * Records a like being added to or removed from a post.
+     *
+     * @param postId The ID of the post.
+     * @param delta  The change in likes, e.g. 1 for a like and -1 for an unlike.
+     */
+    public void adjust(Integer postId, int delta) {
+        pendingDeltas.merge(postId, delta, Integer::sum);
+    }
+
+    /**
+     * Retrieves the current like count of a post, including changes not yet flushed.
+     *
+     * @param post The post.
+     * @return The number of likes on the post.
+     */
+    public int getLikeCount(UserPost post) {
+        return post.getLikeCount() + pendingDeltas.getOrDefault(post.getId(), 0);
+    }
+
+    /**
+     * Writes all pending like count changes to the database in one batch. The batch runs in a single
+     * transaction, so after a failure none of its changes were applied and all of them are retried.
+     */
+    @Scheduled(fixedDelay = 5000)
+    @PreDestroy
+    public void flush() {
+        List<Object[]> batch = new ArrayList<>();
+        for (Integer postId : pendingDeltas.keySet()) {
+            Integer delta = pendingDeltas.remove(postId);
+            if (delta != null && delta != 0) {
+                batch.add(new Object[]{delta, postId});
+            }
+        }
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(
+                    status -> jdbcTemplate.batchUpdate(FLUSH_SQL, batch));
+        } catch (DataAccessException | TransactionException e) {
+            // Put the changes back so the next flush retries them
+            batch.forEach(entry -> adjust((Integer) entry[1], (Integer) entry[0]));
+            log.warn("Failed to flush like counts, will retry", e);
+        }
+    }
+
+}
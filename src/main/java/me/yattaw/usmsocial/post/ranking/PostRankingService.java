@@ -0,0 +1,394 @@
+package me.yattaw.usmsocial.post.ranking;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import me.yattaw.usmsocial.entities.user.UserPost;
+import me.yattaw.usmsocial.post.stream.PostCreatedEvent;
+import me.yattaw.usmsocial.service.MigrationService;
+import me.yattaw.usmsocial.user.follow.SocialGraphService;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Service class that ranks the recommended feed by engagement instead of by recency alone.
+ *
+ * <p>
+ * Every candidate post carries a score that is updated whenever the post is liked or commented on:
+ * </p>
+ * <pre>
+ * score = ln(1 + likes + 2 * comments + 3 * likeVelocity) + ln(2) * createdAt / RECENCY_HALF_LIFE
+ * </pre>
+ * <p>
+ * The recency term grows with the creation time instead of shrinking with age, so a score never has
+ * to be recomputed just because time passed; a post needs twice the engagement of a post one half-life
+ * younger to rank equally. The like velocity is an exponentially decaying like count as of the last like.
+ * </p>
+ *
+ * <p>
+ * Only the {@link #CANDIDATE_CAPACITY} best scored posts are kept. A page of the ranked feed re-scores
+ * these candidates for the viewer, boosting authors the viewer follows or has liked recently,
+ * so ranking never scans the post tables. Posts outside the candidates are scored from their stored
+ * <code>like_count</code> and <code>comment_count</code> columns when they are liked or commented on.
+ * </p>
+ *
+ * @version 17 April 2024
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@DependsOn("entityManagerFactory")
+public class PostRankingService {
+
+    /**
+     * The maximum number of posts considered for the ranked feed.
+     */
+    public static final int CANDIDATE_CAPACITY = 1_000;
+
+    /**
+     * The number of most recent posts scored when the candidates are seeded.
+     */
+    private static final int SEED_POST_COUNT = 5 * CANDIDATE_CAPACITY;
+
+    private static final Duration RECENCY_HALF_LIFE = Duration.ofHours(12);
+
+    private static final Duration VELOCITY_HALF_LIFE = Duration.ofHours(1);
+
+    private static final double COMMENT_WEIGHT = 2.0;
+
+    private static final double VELOCITY_WEIGHT = 3.0;
+
+    /**
+     * Score bonus for posts by authors the viewer follows, the same as doubling the engagement.
+     */
+    private static final double FOLLOWING_BONUS = Math.log(2);
+
+    /**
+     * Weight of the logarithm of the number of posts by the author the viewer has liked.
+     */
+    private static final double AFFINITY_WEIGHT = 0.5;
+
+    /**
+     * The maximum number of viewers whose liked authors are kept in memory.
+     */
+    private static final int MAX_CACHED_VIEWERS = 10_000;
+
+    /**
+     * The number of most recent likes of a viewer used to find the authors the viewer likes.
+     */
+    private static final int AFFINITY_LIKE_COUNT = 200;
+
+    private static final String SEED_SQL = "SELECT post_id, user_id, timestamp, like_count, comment_count " +
+            "FROM usm_social_posts ORDER BY post_id DESC LIMIT ?";
+
+    private static final String BACKFILL_SQL = "UPDATE usm_social_posts p SET comment_count = " +
+            "(SELECT COUNT(*) FROM usm_social_post_comments c WHERE c.post_id = p.post_id)";
+
+    private static final String LIKED_AUTHORS_SQL = "SELECT p.user_id, COUNT(*) FROM " +
+            "(SELECT post_id FROM usm_social_post_likes WHERE user_id = ? ORDER BY like_id DESC LIMIT ?) l " +
+            "JOIN usm_social_posts p ON p.post_id = l.post_id GROUP BY p.user_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MigrationService migrationService;
+    private final SocialGraphService socialGraphService;
+
+    private final Object lock = new Object();
+    private final Map<Integer, RankedPost> candidates = new HashMap<>();
+    private final TreeSet<RankedPost> ranking = new TreeSet<>(
+            Comparator.comparingDouble((RankedPost post) -> post.score).thenComparingInt(post -> post.postId));
+
+    /**
+     * The number of likes each viewer gave to the posts of each author, keyed by viewer ID and author ID.
+     */
+    private final Map<Integer, Map<Integer, Integer>> likedAuthors = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Map<Integer, Integer>> eldest) {
+                    return size() > MAX_CACHED_VIEWERS;
+                }
+            }
+    );
+
+    /**
+     * Computes the stored comment counts of posts created before the column existed. Runs once,
+     * before any requests are served; afterwards the counts are incremented as comments are created.
+     */
+    @PostConstruct
+    public void backfill() {
+        migrationService.runOnce("post_comment_counts", () -> {
+            int updated = jdbcTemplate.update(BACKFILL_SQL);
+            log.info("Backfilled comment counts of {} posts", updated);
+        });
+    }
+
+    /**
+     * Scores the most recent posts once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        List<RankedPost> recent = jdbcTemplate.query(SEED_SQL, (resultSet, rowNumber) -> new RankedPost(
+                resultSet.getInt(1),
+                resultSet.getInt(2),
+                toEpochSecond(resultSet.getObject(3, LocalDateTime.class)),
+                resultSet.getInt(4),
+                resultSet.getInt(5)), SEED_POST_COUNT);
+
+        synchronized (lock) {
+            recent.forEach(this::offer);
+        }
+        log.info("Scored {} recent posts for the ranked feed", recent.size());
+    }
+
+    /**
+     * Adds a newly created post to the candidates.
+     *
+     * @param event The created post.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostCreated(PostCreatedEvent event) {
+        synchronized (lock) {
+            if (!candidates.containsKey(event.postId())) {
+                offer(new RankedPost(event.postId(), event.authorId(), toEpochSecond(LocalDateTime.now()), 0, 0));
+            }
+        }
+    }
+
+    /**
+     * Records a like being added to or removed from a post.
+     *
+     * @param post      The post.
+     * @param likeCount The like count of the post after the change.
+     * @param viewerId  The ID of the user who liked or unliked the post.
+     * @param delta     The change in likes, 1 for a like and -1 for an unlike.
+     */
+    public void recordLike(UserPost post, int likeCount, Integer viewerId, int delta) {
+        likedAuthors.computeIfPresent(viewerId, (id, authors) -> {
+            authors.merge(post.getUser().getId(), delta, Integer::sum);
+            return authors;
+        });
+
+        RankedPost loaded = isCandidate(post.getId()) ? null : load(post, likeCount - delta, post.getCommentCount());
+        synchronized (lock) {
+            RankedPost ranked = take(post.getId(), loaded);
+            if (ranked != null) {
+                ranked.addLike(delta);
+                offer(ranked);
+            }
+        }
+    }
+
+    /**
+     * Records a comment being added to a post.
+     *
+     * @param post      The post.
+     * @param likeCount The like count of the post.
+     */
+    public void recordComment(UserPost post, int likeCount) {
+        // The post was read before the new comment was counted, so it is added below
+        RankedPost loaded = isCandidate(post.getId()) ? null : load(post, likeCount, post.getCommentCount());
+        synchronized (lock) {
+            RankedPost ranked = take(post.getId(), loaded);
+            if (ranked != null) {
+                ranked.comments++;
+                ranked.updateScore();
+                offer(ranked);
+            }
+        }
+    }
+
+    /**
+     * Removes a deleted post from the candidates.
+     *
+     * @param postId The ID of the deleted post.
+     */
+    public void removePost(Integer postId) {
+        synchronized (lock) {
+            RankedPost ranked = candidates.remove(postId);
+            if (ranked != null) {
+                ranking.remove(ranked);
+            }
+        }
+    }
+
+    /**
+     * Retrieves a page of the ranked feed for a viewer.
+     *
+     * @param viewerId   The ID of the viewer, or null for a feed without personalization.
+     * @param pageNumber The page number for pagination.
+     * @param pageSize   The size of each page for pagination.
+     * @return The post IDs of the requested page best first, with the number of ranked posts as the total.
+     */
+    public Page<Integer> getRankedPage(Integer viewerId, int pageNumber, int pageSize) {
+        int[] postIds;
+        int[] authorIds;
+        double[] scores;
+        synchronized (lock) {
+            postIds = new int[ranking.size()];
+            authorIds = new int[ranking.size()];
+            scores = new double[ranking.size()];
+            int i = 0;
+            for (RankedPost ranked : ranking) {
+                postIds[i] = ranked.postId;
+                authorIds[i] = ranked.authorId;
+                scores[i] = ranked.score;
+                i++;
+            }
+        }
+
+        if (viewerId != null) {
+            Map<Integer, Integer> liked = getLikedAuthors(viewerId);
+            for (int i = 0; i < scores.length; i++) {
+                if (socialGraphService.isFollowing(viewerId, authorIds[i])) {
+                    scores[i] += FOLLOWING_BONUS;
+                }
+                int likes = liked.getOrDefault(authorIds[i], 0);
+                if (likes > 0) {
+                    scores[i] += AFFINITY_WEIGHT * Math.log1p(likes);
+                }
+            }
+        }
+
+        Integer[] order = new Integer[postIds.length];
+        Arrays.setAll(order, i -> i);
+        // Equal scores rank the newer post first
+        Arrays.sort(order, (first, second) -> scores[first] != scores[second] ?
+                Double.compare(scores[second], scores[first]) : Integer.compare(postIds[second], postIds[first]));
+
+        PageRequest pageRequest = PageRequest.of(pageNumber, pageSize);
+        int from = (int) Math.min(pageRequest.getOffset(), order.length);
+        int to = Math.min(from + pageSize, order.length);
+        List<Integer> page = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            page.add(postIds[order[i]]);
+        }
+        // The total comes from the same snapshot as the page, so it matches the posts that were ranked
+        return new PageImpl<>(page, pageRequest, order.length);
+    }
+
+    private Map<Integer, Integer> getLikedAuthors(Integer viewerId) {
+        Map<Integer, Integer> liked = likedAuthors.get(viewerId);
+        if (liked != null) {
+            synchronized (liked) {
+                return new HashMap<>(liked);
+            }
+        }
+
+        Map<Integer, Integer> loaded = Collections.synchronizedMap(new HashMap<>());
+        jdbcTemplate.query(LIKED_AUTHORS_SQL, resultSet -> {
+            loaded.put(resultSet.getInt(1), resultSet.getInt(2));
+        }, viewerId, AFFINITY_LIKE_COUNT);
+        likedAuthors.putIfAbsent(viewerId, loaded);
+        return loaded;
+    }
+
+    private boolean isCandidate(Integer postId) {
+        synchronized (lock) {
+            return candidates.containsKey(postId);
+        }
+    }
+
+    private RankedPost load(UserPost post, int likes, int comments) {
+        return new RankedPost(post.getId(), post.getUser().getId(), toEpochSecond(post.getTimestamp()),
+                likes, comments);
+    }
+
+    /**
+     * Removes a post from the candidates so its score can be changed, falling back to a freshly
+     * loaded copy if it is not a candidate. Must be called while holding {@link #lock}.
+     *
+     * @param postId The ID of the post.
+     * @param loaded The loaded copy of the post, or null if it was a candidate.
+     * @return The post to update, or null if it stopped being a candidate in the meantime.
+     */
+    private RankedPost take(Integer postId, RankedPost loaded) {
+        RankedPost ranked = candidates.remove(postId);
+        if (ranked == null) {
+            return loaded;
+        }
+        ranking.remove(ranked);
+        return ranked;
+    }
+
+    /**
+     * Adds a post to the candidates if there is room or it scores better than the worst candidate.
+     * Must be called while holding {@link #lock}.
+     *
+     * @param ranked The post to offer.
+     */
+    private void offer(RankedPost ranked) {
+        if (candidates.size() >= CANDIDATE_CAPACITY) {
+            RankedPost worst = ranking.first();
+            if (ranking.comparator().compare(worst, ranked) >= 0) {
+                return;
+            }
+            ranking.pollFirst();
+            candidates.remove(worst.postId);
+        }
+        candidates.put(ranked.postId, ranked);
+        ranking.add(ranked);
+    }
+
+    private static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime == null ? 0 : dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * The engagement of a candidate post and the score derived from it.
+     */
+    private static final class RankedPost {
+
+        private final int postId;
+        private final int authorId;
+        private final long createdAt;
+        private int likes;
+        private int comments;
+        private double likeVelocity;
+        private long velocityUpdatedAt;
+        private double score;
+
+        RankedPost(int postId, int authorId, long createdAt, int likes, int comments) {
+            this.postId = postId;
+            this.authorId = authorId;
+            this.createdAt = createdAt;
+            this.likes = likes;
+            this.comments = comments;
+            this.velocityUpdatedAt = createdAt;
+            updateScore();
+        }
+
+        void addLike(int delta) {
+            long now = toEpochSecond(LocalDateTime.now());
+            double elapsedHalfLives = (double) (now - velocityUpdatedAt) / VELOCITY_HALF_LIFE.toSeconds();
+            likeVelocity = Math.max(0, likeVelocity * Math.pow(0.5, elapsedHalfLives) + delta);
+            velocityUpdatedAt = now;
+            likes = Math.max(0, likes + delta);
+            updateScore();
+        }
+
+        void updateScore() {
+            double engagement = likes + COMMENT_WEIGHT * comments + VELOCITY_WEIGHT * likeVelocity;
+            score = Math.log1p(engagement) + Math.log(2) * createdAt / RECENCY_HALF_LIFE.toSeconds();
+        }
+    }
+
+}
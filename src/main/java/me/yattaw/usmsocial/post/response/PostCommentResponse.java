@@ -51,7 +51,7 @@ public class PostCommentResponse {
     private LocalDateTime timestamp;
 
     /**
-     * Base 64 Encoding of profile picture
+     * The URL of the commenter's profile picture
      */
-    private String profilePictureBase64;
+    private String profilePictureUrl;
 }
@@ -12,7 +12,8 @@ import java.util.List;
  * Represents a response containing formatted post information.
  *
  * <p>This class encapsulates the information required to represent a post in a formatted response.
- * It includes the post ID, content, information about the user who posted it, comments on the post,
+ * It includes the post ID, content, information about the user who posted it, the newest comments on the post,
+ * the comment count,
  * timestamp of the post, like count, and whether the post is liked by the current user.</p>
  *
  * {@code @Data} is a Lombok annotation to generate getters, setters, equals, hashcode, and toString methods.
@@ -44,10 +45,15 @@ public class PostFormatResponse {
     private PostUserInfo postUserInfo;
 
     /**
-     * Comments on the post.
+     * The newest comments on the post. Older comments are fetched separately.
      */
     private List<PostCommentResponse> comments;
 
+    /**
+     * The total count of comments on the post.
+     */
+    private int commentCount;
+
     /**
      * The timestamp of the post.
      */
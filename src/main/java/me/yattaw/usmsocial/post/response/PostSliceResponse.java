@@ -0,0 +1,37 @@
+package me.yattaw.usmsocial.post.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Slice;
+
+/**
+ * Represents a response containing a cursor-paginated slice of posts.
+ *
+ * <p>This class encapsulates a slice of formatted posts along with the cursor to pass back
+ * to fetch the following slice. The cursor is null when there are no more posts.</p>
+ *
+ * {@code @Data} is a Lombok annotation to generate getters, setters, equals, hashcode, and toString methods.
+ * {@code @Builder} is a Lombok annotation to generate a builder for the class.
+ * {@code @AllArgsConstructor} generates a constructor with all arguments.
+ * {@code @NoArgsConstructor} generates a constructor with no arguments.
+ *
+ * @version 17 April 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostSliceResponse {
+
+    /**
+     * The slice containing formatted posts.
+     */
+    private Slice<PostFormatResponse> sliceResult;
+
+    /**
+     * The opaque cursor of the next slice, or null if this is the last slice.
+     */
+    private String nextCursor;
+}
@@ -0,0 +1,12 @@
+package me.yattaw.usmsocial.post.stream;
+
+/**
+ * Application event published after a post has been created.
+ *
+ * @param authorId The ID of the user who created the post.
+ * @param postId   The ID of the created post.
+ *
+ * @version 17 April 2024
+ */
+public record PostCreatedEvent(Integer authorId, Integer postId) {
+}
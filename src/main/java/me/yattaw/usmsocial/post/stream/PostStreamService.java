@@ -0,0 +1,103 @@
+package me.yattaw.usmsocial.post.stream;
+
+import me.yattaw.usmsocial.post.response.PostNewInfoResponse;
+import me.yattaw.usmsocial.service.SseSubscriber;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service class that pushes new post notifications to clients over Server-Sent Events.
+ *
+ * <p>
+ * Each client keeps one subscription open, either to every post (the recommended feed) or to the
+ * posts of a single user. When a {@link PostCreatedEvent} is published every matching subscription
+ * receives a {@link PostNewInfoResponse} with the number of posts created since it subscribed,
+ * the same information the <code>/new/fetch</code> endpoints answer when polled.
+ * Events are queued per subscription (see {@link SseSubscriber}), so a slow client does not delay the others.
+ * </p>
+ *
+ * @version 17 April 2024
+ */
+@Service
+public class PostStreamService {
+
+    /**
+     * How long a subscription stays open before the client has to reconnect.
+     */
+    private static final Duration SUBSCRIPTION_TIMEOUT = Duration.ofMinutes(30);
+
+    private static final String NEW_POSTS_EVENT = "new-posts";
+
+    private final Executor streamExecutor;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    public PostStreamService(@Qualifier("streamExecutor") Executor streamExecutor) {
+        this.streamExecutor = streamExecutor;
+    }
+
+    private record Subscription(SseSubscriber subscriber, Integer authorId, LocalDateTime since, AtomicInteger newPosts) {
+
+        boolean matches(PostCreatedEvent event) {
+            return authorId == null || authorId.equals(event.authorId());
+        }
+    }
+
+    /**
+     * Opens a subscription to new posts.
+     *
+     * @param authorId The ID of the user whose posts to subscribe to, or null for every post.
+     * @return The emitter the notifications are sent through.
+     */
+    public SseEmitter subscribe(Integer authorId) {
+        SseSubscriber subscriber = new SseSubscriber(SUBSCRIPTION_TIMEOUT, streamExecutor);
+        Subscription subscription = new Subscription(subscriber, authorId, LocalDateTime.now(), new AtomicInteger());
+        subscriber.onClose(() -> subscriptions.remove(subscription));
+        subscriptions.add(subscription);
+
+        return subscriber.getEmitter();
+    }
+
+    /**
+     * Notifies the matching subscriptions once a post has been committed.
+     * Only queues the notifications, so it runs on the thread that committed the post.
+     *
+     * @param event The created post.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostCreated(PostCreatedEvent event) {
+        LocalDateTime now = LocalDateTime.now();
+        for (Subscription subscription : subscriptions) {
+            if (subscription.matches(event)) {
+                subscription.subscriber().send(SseEmitter.event()
+                        .name(NEW_POSTS_EVENT)
+                        .id(String.valueOf(event.postId()))
+                        .data(PostNewInfoResponse.builder()
+                                .amountOfNewPost(subscription.newPosts().incrementAndGet())
+                                .lastFetchDateTime(subscription.since())
+                                .serverDateTime(now)
+                                .build()));
+            }
+        }
+    }
+
+    /**
+     * Sends a comment to every subscription so connections closed by the client are detected
+     * and proxies do not drop idle connections.
+     */
+    @Scheduled(fixedDelay = 30_000)
+    public void heartbeat() {
+        subscriptions.forEach(subscription -> subscription.subscriber().send(SseEmitter.event().comment("heartbeat")));
+    }
+
+}
@@ -0,0 +1,303 @@
+package me.yattaw.usmsocial.post.timeline;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import me.yattaw.usmsocial.repositories.FollowerRepository;
+import me.yattaw.usmsocial.repositories.PostRepository;
+import me.yattaw.usmsocial.user.follow.FollowCounterService;
+import me.yattaw.usmsocial.user.follow.SocialGraphService;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Service class that maintains the home timelines of users.
+ *
+ * <p>
+ * When a post is created its ID is pushed (fan-out-on-write) into the in-memory timeline of every
+ * follower of the author, so reading a home feed only needs the IDs of the requested page.
+ * Authors with more than {@link #CELEBRITY_FOLLOWER_THRESHOLD} followers are not fanned out;
+ * their posts are merged into the timelines of their followers at read time instead (fan-out-on-read)
+ * so the cost of a single post stays bounded.
+ * </p>
+ *
+ * <p>
+ * Only timelines of recently active users are kept in memory. A timeline that is not cached is
+ * rebuilt from the database on the next read, so fan-out skips users that do not have one loaded.
+ * A rebuild reads the newest posts of the user and of every followed author through the
+ * <code>(user_id, post_id)</code> index and merges them in memory, so it never scans the posts table.
+ * </p>
+ *
+ * @version 17 April 2024
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TimelineService {
+
+    /**
+     * The maximum number of post IDs kept per timeline.
+     */
+    public static final int TIMELINE_CAPACITY = 500;
+
+    /**
+     * The maximum number of timelines kept in memory.
+     */
+    private static final int MAX_CACHED_TIMELINES = 10_000;
+
+    /**
+     * Authors with more followers than this are merged into timelines at read time.
+     */
+    private static final int CELEBRITY_FOLLOWER_THRESHOLD = 5_000;
+
+    private static final int FAN_OUT_BATCH_SIZE = 1_000;
+
+    /**
+     * The maximum number of authors whose posts are read by a single query when a timeline is rebuilt.
+     */
+    private static final int REBUILD_AUTHOR_BATCH_SIZE = 100;
+
+    private static final String CELEBRITIES_SQL = "SELECT user_id FROM usm_social_users WHERE follower_count > ?";
+
+    private static final String AUTHOR_POSTS_SQL =
+            "(SELECT post_id FROM usm_social_posts WHERE user_id = ? AND post_id > ? ORDER BY post_id DESC LIMIT ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PostRepository postRepository;
+    private final FollowerRepository followerRepository;
+    private final FollowCounterService followCounterService;
+    private final SocialGraphService socialGraphService;
+
+    private final Set<Integer> celebrityIds = ConcurrentHashMap.newKeySet();
+
+    private final Map<Integer, UserTimeline> timelines = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, UserTimeline> eldest) {
+                    return size() > MAX_CACHED_TIMELINES;
+                }
+            }
+    );
+
+    /**
+     * Loads the authors whose posts are merged at read time once the application is ready,
+     * so they are not fanned out before each of them posted again.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedCelebrities() {
+        celebrityIds.addAll(jdbcTemplate.queryForList(CELEBRITIES_SQL, Integer.class, CELEBRITY_FOLLOWER_THRESHOLD));
+        log.info("Loaded {} authors whose posts are merged into timelines at read time", celebrityIds.size());
+    }
+
+    /**
+     * Pushes a newly created post to the timelines of the author and the author's followers.
+     *
+     * @param authorId The ID of the user who created the post.
+     * @param postId   The ID of the created post.
+     */
+    @Async("feedExecutor")
+    public void fanOutPost(Integer authorId, Integer postId) {
+        UserTimeline authorTimeline = timelines.get(authorId);
+        if (authorTimeline != null) {
+            authorTimeline.push(postId);
+        }
+
+        if (celebrityIds.contains(authorId)) {
+            return;
+        }
+
+        if (followCounterService.getFollowerCount(authorId) > CELEBRITY_FOLLOWER_THRESHOLD) {
+            celebrityIds.add(authorId);
+            return;
+        }
+
+        if (socialGraphService.isReady()) {
+            for (int followerId : socialGraphService.getFollowerIds(authorId)) {
+                UserTimeline timeline = timelines.get(followerId);
+                if (timeline != null) {
+                    timeline.push(postId);
+                }
+            }
+            return;
+        }
+
+        int pageNumber = 0;
+        Page<Integer> followers;
+        do {
+            followers = followerRepository.getUserFollowers(authorId, PageRequest.of(pageNumber++, FAN_OUT_BATCH_SIZE));
+            for (Integer followerId : followers) {
+                UserTimeline timeline = timelines.get(followerId);
+                if (timeline != null) {
+                    timeline.push(postId);
+                }
+            }
+        } while (followers.hasNext());
+    }
+
+    /**
+     * Removes a deleted post from every cached timeline.
+     *
+     * @param postId The ID of the deleted post.
+     */
+    public void removePost(Integer postId) {
+        List<UserTimeline> cached;
+        synchronized (timelines) {
+            cached = new ArrayList<>(timelines.values());
+        }
+        cached.forEach(timeline -> timeline.remove(postId));
+    }
+
+    /**
+     * Drops the cached timeline of a user so it is rebuilt on the next read,
+     * e.g. after the user followed or unfollowed someone.
+     *
+     * @param userId The ID of the user.
+     */
+    public void invalidate(Integer userId) {
+        timelines.remove(userId);
+    }
+
+    /**
+     * Retrieves a page of post IDs from the home timeline of a user, newest first.
+     *
+     * @param userId     The ID of the user.
+     * @param pageNumber The page number for pagination.
+     * @param pageSize   The size of each page for pagination.
+     * @return The post IDs of the requested page, with the number of posts in the whole timeline as the total.
+     */
+    public Page<Integer> getTimelinePage(Integer userId, int pageNumber, int pageSize) {
+        int[] timelineIds = getTimeline(userId).newest(TIMELINE_CAPACITY);
+        int[] celebrityPostIds = getFollowedCelebrityPostIds(userId, TIMELINE_CAPACITY);
+
+        // Both arrays are sorted by descending post ID, merge them while skipping duplicates.
+        // The whole timeline is merged so the page total is the number of posts actually available.
+        List<Integer> merged = new ArrayList<>(Math.min(timelineIds.length + celebrityPostIds.length, TIMELINE_CAPACITY));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < TIMELINE_CAPACITY && (i < timelineIds.length || j < celebrityPostIds.length)) {
+            int next;
+            if (j >= celebrityPostIds.length || (i < timelineIds.length && timelineIds[i] >= celebrityPostIds[j])) {
+                next = timelineIds[i++];
+            } else {
+                next = celebrityPostIds[j++];
+            }
+            if (merged.isEmpty() || merged.get(merged.size() - 1) != next) {
+                merged.add(next);
+            }
+        }
+
+        PageRequest pageRequest = PageRequest.of(pageNumber, pageSize);
+        int from = (int) Math.min(pageRequest.getOffset(), merged.size());
+        int to = Math.min(from + pageSize, merged.size());
+        return new PageImpl<>(merged.subList(from, to), pageRequest, merged.size());
+    }
+
+    private UserTimeline getTimeline(Integer userId) {
+        UserTimeline timeline = timelines.get(userId);
+        if (timeline == null) {
+            timeline = new UserTimeline(TIMELINE_CAPACITY, loadTimelinePostIds(userId));
+            UserTimeline existing = timelines.putIfAbsent(userId, timeline);
+            if (existing != null) {
+                timeline = existing;
+            }
+        }
+        return timeline;
+    }
+
+    /**
+     * Reads the newest post IDs of a user and of every author the user follows.
+     *
+     * <p>
+     * Each author is read by its own index range, at most {@link #TIMELINE_CAPACITY} posts each, and the
+     * results are merged in memory. Once a full timeline is known, later batches only read posts newer
+     * than its oldest post.
+     * </p>
+     *
+     * @param userId The ID of the user.
+     * @return Up to {@link #TIMELINE_CAPACITY} post IDs, newest first.
+     */
+    private List<Integer> loadTimelinePostIds(Integer userId) {
+        int[] authorIds = getTimelineAuthorIds(userId);
+        int[] newest = new int[0];
+        for (int from = 0; from < authorIds.length; from += REBUILD_AUTHOR_BATCH_SIZE) {
+            int to = Math.min(from + REBUILD_AUTHOR_BATCH_SIZE, authorIds.length);
+            int oldest = newest.length < TIMELINE_CAPACITY ? 0 : newest[newest.length - 1];
+
+            List<Object> arguments = new ArrayList<>((to - from) * 3);
+            for (int i = from; i < to; i++) {
+                arguments.add(authorIds[i]);
+                arguments.add(oldest);
+                arguments.add(TIMELINE_CAPACITY);
+            }
+            String sql = String.join(" UNION ALL ", Collections.nCopies(to - from, AUTHOR_POSTS_SQL));
+            List<Integer> postIds = jdbcTemplate.queryForList(sql, Integer.class, arguments.toArray());
+
+            int[] merged = new int[newest.length + postIds.size()];
+            System.arraycopy(newest, 0, merged, 0, newest.length);
+            for (int i = 0; i < postIds.size(); i++) {
+                merged[newest.length + i] = postIds.get(i);
+            }
+            // Post IDs are unique per author and the authors are distinct, so there are no duplicates to skip
+            Arrays.sort(merged);
+            int count = Math.min(merged.length, TIMELINE_CAPACITY);
+            newest = new int[count];
+            for (int i = 0; i < count; i++) {
+                newest[i] = merged[merged.length - 1 - i];
+            }
+        }
+        return Arrays.stream(newest).boxed().collect(Collectors.toList());
+    }
+
+    private int[] getTimelineAuthorIds(Integer userId) {
+        int[] followingIds;
+        if (socialGraphService.isReady()) {
+            followingIds = socialGraphService.getFollowingIds(userId);
+        } else {
+            List<Integer> followings = new ArrayList<>();
+            int pageNumber = 0;
+            Page<Integer> page;
+            do {
+                page = followerRepository.getUserFollowings(userId, PageRequest.of(pageNumber++, FAN_OUT_BATCH_SIZE));
+                followings.addAll(page.getContent());
+            } while (page.hasNext());
+            followingIds = followings.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        int[] authorIds = Arrays.copyOf(followingIds, followingIds.length + 1);
+        authorIds[followingIds.length] = userId;
+        return Arrays.stream(authorIds).distinct().toArray();
+    }
+
+    private int[] getFollowedCelebrityPostIds(Integer userId, int limit) {
+        if (celebrityIds.isEmpty()) {
+            return new int[0];
+        }
+
+        List<Integer> followed = socialGraphService.isReady() ?
+                socialGraphService.getFollowingsAmong(userId, celebrityIds) :
+                followerRepository.getFollowingsAmong(userId, new ArrayList<>(celebrityIds));
+        if (followed.isEmpty()) {
+            return new int[0];
+        }
+
+        return postRepository.getRecentPostIdsByUsers(followed, limit).stream()
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+}
@@ -0,0 +1,105 @@
+package me.yattaw.usmsocial.post.timeline;
+
+/**
+ * Bounded, newest-first list of post IDs that make up a user's home timeline.
+ *
+ * <p>Post IDs are kept in a fixed size ring buffer of primitive ints, so pushing a new post
+ * is O(1) and the oldest entry is dropped once the timeline is full.</p>
+ *
+ * @version 17 April 2024
+ */
+public class UserTimeline {
+
+    private final int[] postIds;
+    private int head;
+    private int size;
+
+    /**
+     * Creates an empty timeline.
+     *
+     * @param capacity The maximum number of post IDs this timeline can hold.
+     */
+    public UserTimeline(int capacity) {
+        this.postIds = new int[capacity];
+    }
+
+    /**
+     * Creates a timeline pre-filled with post IDs.
+     *
+     * @param capacity The maximum number of post IDs this timeline can hold.
+     * @param newestFirst The post IDs ordered from newest to oldest.
+     */
+    public UserTimeline(int capacity, Iterable<Integer> newestFirst) {
+        this(capacity);
+        int[] buffer = new int[capacity];
+        int count = 0;
+        for (Integer postId : newestFirst) {
+            if (count == capacity) {
+                break;
+            }
+            buffer[count++] = postId;
+        }
+        // Push oldest first so the newest post ends up at the head
+        for (int i = count - 1; i >= 0; i--) {
+            push(buffer[i]);
+        }
+    }
+
+    /**
+     * Adds a post to the top of the timeline, evicting the oldest post if the timeline is full.
+     *
+     * @param postId The ID of the post.
+     */
+    public synchronized void push(int postId) {
+        head = (head + 1) % postIds.length;
+        postIds[head] = postId;
+        if (size < postIds.length) {
+            size++;
+        }
+    }
+
+    /**
+     * Removes a post from the timeline if present.
+     *
+     * @param postId The ID of the post.
+     */
+    public synchronized void remove(int postId) {
+        int[] kept = new int[size];
+        int count = 0;
+        for (int i = size - 1; i >= 0; i--) {
+            int value = postIds[(head - i + postIds.length) % postIds.length];
+            if (value != postId) {
+                kept[count++] = value;
+            }
+        }
+        head = 0;
+        size = 0;
+        for (int i = 0; i < count; i++) {
+            push(kept[i]);
+        }
+    }
+
+    /**
+     * Retrieves the newest post IDs in the timeline.
+     *
+     * @param limit The maximum number of post IDs to return.
+     * @return The post IDs ordered from newest to oldest.
+     */
+    public synchronized int[] newest(int limit) {
+        int count = Math.min(limit, size);
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = postIds[(head - i + postIds.length) % postIds.length];
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves the number of post IDs in the timeline.
+     *
+     * @return The number of post IDs.
+     */
+    public synchronized int size() {
+        return size;
+    }
+}
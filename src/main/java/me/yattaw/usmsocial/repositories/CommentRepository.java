@@ -1,12 +1,67 @@
 package me.yattaw.usmsocial.repositories;
 
 import me.yattaw.usmsocial.entities.post.PostComment;
-import me.yattaw.usmsocial.entities.post.PostLike;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Repository for comments.
  */
 public interface CommentRepository extends JpaRepository<PostComment, Integer> {
 
+    /**
+     * Retrieves the comments of a post older than the given position, newest first,
+     * together with the users who made them.
+     *
+     * @param postId    The ID of the post.
+     * @param timestamp The timestamp of the last comment already seen.
+     * @param commentId The ID of the last comment already seen.
+     * @param pageable  Pageable object limiting the number of comments.
+     * @return List of comments made on the post before the given position.
+     */
+    @Query("SELECT c FROM PostComment c JOIN FETCH c.user WHERE c.post.id = :postId AND " +
+            "(c.timestamp < :timestamp OR (c.timestamp = :timestamp AND c.commentId < :commentId)) " +
+            "ORDER BY c.timestamp DESC, c.commentId DESC")
+    List<PostComment> getCommentsAfter(@Param("postId") Integer postId, @Param("timestamp") LocalDateTime timestamp,
+                                       @Param("commentId") Long commentId, Pageable pageable);
+
+    /**
+     * Retrieves the IDs of the newest comments of each of the given posts.
+     *
+     * @param postIds The IDs of the posts.
+     * @param limit   The maximum number of comments per post.
+     * @return The IDs of the newest comments of each post.
+     */
+    @Query(
+            value = "SELECT comment_id FROM (SELECT comment_id, ROW_NUMBER() OVER " +
+                    "(PARTITION BY post_id ORDER BY timestamp DESC, comment_id DESC) AS position " +
+                    "FROM usm_social_post_comments WHERE post_id IN (:postIds)) ranked WHERE position <= :limit",
+            nativeQuery = true)
+    List<Long> getNewestCommentIds(@Param("postIds") Collection<Integer> postIds, @Param("limit") Integer limit);
+
+    /**
+     * Retrieves comments by their IDs together with the users who made them, newest first.
+     *
+     * @param commentIds The IDs of the comments.
+     * @return List of comments.
+     */
+    @Query("SELECT c FROM PostComment c JOIN FETCH c.user WHERE c.commentId IN :commentIds " +
+            "ORDER BY c.timestamp DESC, c.commentId DESC")
+    List<PostComment> findAllWithUserByIds(@Param("commentIds") Collection<Long> commentIds);
+
+    /**
+     * Retrieves the number of comments of each of the given posts.
+     *
+     * @param postIds The IDs of the posts.
+     * @return List of (post ID, comment count) pairs for posts that have comments.
+     */
+    @Query("SELECT c.post.id, COUNT(c) FROM PostComment c WHERE c.post.id IN :postIds GROUP BY c.post.id")
+    List<Object[]> getCommentCounts(@Param("postIds") Collection<Integer> postIds);
+
 }
@@ -0,0 +1,25 @@
+package me.yattaw.usmsocial.repositories;
+
+import me.yattaw.usmsocial.entities.message.ConversationSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+/**
+ * Repository interface for reading conversation summaries from the database.
+ * Summaries are written by {@link me.yattaw.usmsocial.messages.ConversationSummaryService}.
+ */
+public interface ConversationSummaryRepository extends JpaRepository<ConversationSummary, Integer> {
+
+    /**
+     * Retrieves the inbox of a user, ordered by the time of the last message, oldest first.
+     *
+     * @param ownerId The ID of the user whose inbox is being queried.
+     * @return A list of the conversation summaries of the user with their partners loaded.
+     */
+    @Query("SELECT cs FROM ConversationSummary cs JOIN FETCH cs.partner " +
+            "WHERE cs.owner.id = :ownerId ORDER BY cs.lastTimestamp ASC")
+    List<ConversationSummary> findInbox(Integer ownerId);
+
+}
@@ -3,44 +3,44 @@ package me.yattaw.usmsocial.repositories;
 import me.yattaw.usmsocial.entities.message.DirectMessage;
 import me.yattaw.usmsocial.entities.report.UserReport;
 import me.yattaw.usmsocial.entities.user.User;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
-import java.util.Optional;
 /**
  * Repository interface for managing direct messages in the database.
  */
 public interface DirectMessageRepository extends JpaRepository<DirectMessage, Integer> {
 
     /**
-     * Retrieves a list of users who have sent messages from a specific user.
+     * Retrieves the messages of a conversation that are older than a given message, newest first.
      *
-     * @param user The user whose messages are being queried.
-     * @return A list of users who have sent messages from the specified user.
+     * @param conversationKey The key of the conversation, see {@link DirectMessage#conversationKey(int, int)}.
+     * @param beforeId        The ID of the oldest message the client already has.
+     * @param limit           The maximum number of messages to return.
+     * @return A list of messages older than the given message.
      */
-    @Query("SELECT dm.receiver FROM DirectMessage dm WHERE dm.sender = :user")
-    List<User> findUsersWithMessagesFromUser(User user);
+    @Query(
+        value = "SELECT * FROM usm_social_direct_messages WHERE conversation_key = :conversationKey AND id < :beforeId " +
+                "ORDER BY id DESC LIMIT :limit",
+        nativeQuery = true)
+    List<DirectMessage> getMessagesBefore(@Param("conversationKey") Long conversationKey,
+                                          @Param("beforeId") Integer beforeId, @Param("limit") Integer limit);
 
     /**
-     * Retrieves a list of users who have received messages from a specific user.
+     * Retrieves the messages of a conversation that are newer than a given message, oldest first.
      *
-     * @param user The user whose messages are being queried.
-     * @return A list of users who have received messages from the specified user.
+     * @param conversationKey The key of the conversation, see {@link DirectMessage#conversationKey(int, int)}.
+     * @param afterId         The ID of the newest message the client already has.
+     * @param limit           The maximum number of messages to return.
+     * @return A list of messages newer than the given message.
      */
-    @Query("SELECT dm.sender FROM DirectMessage dm WHERE dm.receiver = :user")
-    List<User> findUsersWithMessagesToUser(User user);
-
-    /**
-     * Retrieves a list of messages exchanged between two users.
-     *
-     * @param user1    The first user.
-     * @param user2    The second user.
-     * @param pageable Pageable object for pagination.
-     * @return Optional containing a list of messages between the two users, if any.
-     */
-    @Query("SELECT dm FROM DirectMessage dm WHERE (dm.sender = :user1 AND dm.receiver = :user2) OR (dm.sender = :user2 AND dm.receiver = :user1) ORDER BY dm.timestamp DESC")
-    Optional<List<DirectMessage>> findMessagesBetweenUsers(User user1, User user2, Pageable pageable);
+    @Query(
+        value = "SELECT * FROM usm_social_direct_messages WHERE conversation_key = :conversationKey AND id > :afterId " +
+                "ORDER BY id ASC LIMIT :limit",
+        nativeQuery = true)
+    List<DirectMessage> getMessagesAfter(@Param("conversationKey") Long conversationKey,
+                                         @Param("afterId") Integer afterId, @Param("limit") Integer limit);
 
 }
@@ -7,6 +7,10 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Repository interface for managing follower relationships in the database.
  */
@@ -74,4 +78,17 @@ public interface FollowerRepository extends JpaRepository<UserFollowers, UserFol
         nativeQuery = true
     )
     Integer getCountFollowers(@Param("followerId") Integer followerId);
+
+    /**
+     * Retrieves which of the given users are followed by a specific user.
+     *
+     * @param followerId The ID of the user following others.
+     * @param userIds    The IDs of the candidate users being followed.
+     * @return List containing the IDs of the candidate users followed by the specified user.
+     */
+    @Query(
+        value = "SELECT following_id FROM usm_social_followers WHERE follower_id = :followerId AND following_id IN (:userIds)",
+        nativeQuery = true
+    )
+    List<Integer> getFollowingsAmong(@Param("followerId") Integer followerId, @Param("userIds") Collection<Integer> userIds);
 }
\ No newline at end of file
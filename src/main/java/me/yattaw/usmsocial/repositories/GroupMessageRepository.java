@@ -4,6 +4,7 @@ import me.yattaw.usmsocial.entities.message.GroupMessage;
 import me.yattaw.usmsocial.entities.report.UserReport;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 
@@ -13,11 +14,13 @@ import java.util.List;
 public interface GroupMessageRepository extends JpaRepository<GroupMessage, Integer> {
 
     /**
-     * Retrieves the top 30 group messages ordered by timestamp in descending order.
+     * Retrieves the newest messages of a group, newest first.
      *
-     * @param pageable Pageable object for pagination.
-     * @return List of the top 30 group messages ordered by timestamp in descending order.
+     * @param groupId  The ID of the group.
+     * @param pageable Pageable object limiting the number of messages.
+     * @return List of the newest messages of the group with their senders loaded.
      */
-    List<GroupMessage> findTop30ByOrderByTimestampDesc(Pageable pageable);
+    @Query("SELECT gm FROM GroupMessage gm JOIN FETCH gm.sender WHERE gm.group.id = :groupId ORDER BY gm.id DESC")
+    List<GroupMessage> findRecentByGroup(Integer groupId, Pageable pageable);
 
 }
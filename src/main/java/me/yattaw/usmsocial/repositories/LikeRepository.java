@@ -1,15 +1,30 @@
 package me.yattaw.usmsocial.repositories;
 
 import me.yattaw.usmsocial.entities.post.PostLike;
+import me.yattaw.usmsocial.entities.user.User;
+import me.yattaw.usmsocial.entities.user.UserPost;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 /**
  * Repository interface for managing likes on posts in the database.
  */
 public interface LikeRepository extends JpaRepository<PostLike, Integer> {
 
+    /**
+     * Finds the like a specific user left on a specific post.
+     *
+     * @param user The user who liked the post.
+     * @param post The post that was liked.
+     * @return An optional containing the like, or empty if the user has not liked the post.
+     */
+    Optional<PostLike> findByUserAndPost(User user, UserPost post);
+
     /**
      * Retrieves the count of likes for a specific user and post.
      *
@@ -21,4 +36,16 @@ public interface LikeRepository extends JpaRepository<PostLike, Integer> {
             value = "SELECT COUNT(*) FROM usm_social_post_likes WHERE user_id = :userId AND post_id = :postId",
             nativeQuery = true)
     Integer getCountOfUserAndPostLikes(@Param("userId") Integer userId, @Param("postId") Integer postId);
+
+    /**
+     * Retrieves which of the given posts have been liked by a specific user.
+     *
+     * @param userId  The ID of the user.
+     * @param postIds The IDs of the posts.
+     * @return The IDs of the posts liked by the specified user.
+     */
+    @Query(
+            value = "SELECT post_id FROM usm_social_post_likes WHERE user_id = :userId AND post_id IN (:postIds)",
+            nativeQuery = true)
+    List<Integer> getLikedPostIds(@Param("userId") Integer userId, @Param("postIds") Collection<Integer> postIds);
 }
@@ -5,11 +5,13 @@ import me.yattaw.usmsocial.entities.user.User;
 import me.yattaw.usmsocial.entities.user.UserPost;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -19,12 +21,25 @@ public interface PostRepository extends JpaRepository<UserPost, Integer> {
     void deleteByUser(User user);
 
     Page<UserPost> findAll(Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query(
+        value = "UPDATE usm_social_posts SET comment_count = comment_count + 1 WHERE post_id = :postId",
+        nativeQuery = true)
+    void incrementCommentCount(@Param("postId") Integer postId);
     
     @Query(
         value = "SELECT * FROM usm_social_posts WHERE timestamp <= :datetime", 
         nativeQuery = true)
     Page<UserPost> getRecommended(@Param("datetime") LocalDateTime datetime, Pageable pageable);
 
+    @Query(
+        value = "SELECT * FROM usm_social_posts WHERE timestamp < :timestamp OR (timestamp = :timestamp AND post_id < :postId) " +
+                "ORDER BY timestamp DESC, post_id DESC LIMIT :limit",
+        nativeQuery = true)
+    List<UserPost> getRecommendedAfter(@Param("timestamp") LocalDateTime timestamp, @Param("postId") Long postId, @Param("limit") Integer limit);
+
     @Query(
         value = "SELECT COUNT(*) FROM usm_social_posts WHERE timestamp <= :datetimeCurrent AND timestamp >= :datetimeFetchBefore ORDER BY timestamp DESC",
         nativeQuery = true)
@@ -35,9 +50,6 @@ public interface PostRepository extends JpaRepository<UserPost, Integer> {
         nativeQuery = true)
     List<UserPost> getNewRecommendedPosts(@Param("datetimeCurrent") LocalDateTime datetimeCurrent, @Param("datetimeFetchBefore") LocalDateTime datetimeFetchBefore);
 
-    @Query("SELECT COUNT(pl) FROM UserPost up JOIN up.likes pl WHERE up.id = :postId")
-    Integer getLikeCount(@Param("postId") Integer postId);
-
     @Query(
         value = "SELECT COUNT(*) FROM usm_social_posts WHERE user_id = :userId AND timestamp <= :datetimeCurrent AND timestamp >= :datetimeFetchBefore ORDER BY timestamp DESC",
         nativeQuery = true)
@@ -53,8 +65,25 @@ public interface PostRepository extends JpaRepository<UserPost, Integer> {
         nativeQuery = true)
     Page<UserPost> getUserPosts(@Param("userId") Integer userId, @Param("datetime") LocalDateTime datetime, Pageable pageable);
 
+    @Query(
+        value = "SELECT * FROM usm_social_posts WHERE user_id = :userId AND " +
+                "(timestamp < :timestamp OR (timestamp = :timestamp AND post_id < :postId)) " +
+                "ORDER BY timestamp DESC, post_id DESC LIMIT :limit",
+        nativeQuery = true)
+    List<UserPost> getUserPostsAfter(@Param("userId") Integer userId, @Param("timestamp") LocalDateTime timestamp, @Param("postId") Long postId, @Param("limit") Integer limit);
+
     @Query(
         value = "SELECT COUNT(*) FROM usm_social_posts WHERE user_id = :userId",
         nativeQuery = true)
     Integer getUserPostCount(@Param("userId") Integer userId);
+
+    @Query(
+        value = "SELECT post_id FROM usm_social_posts WHERE user_id = :userId",
+        nativeQuery = true)
+    List<Integer> getUserPostIds(@Param("userId") Integer userId);
+
+    @Query(
+        value = "SELECT post_id FROM usm_social_posts WHERE user_id IN (:userIds) ORDER BY post_id DESC LIMIT :limit",
+        nativeQuery = true)
+    List<Integer> getRecentPostIdsByUsers(@Param("userIds") Collection<Integer> userIds, @Param("limit") Integer limit);
 }
@@ -0,0 +1,10 @@
+package me.yattaw.usmsocial.repositories;
+
+import me.yattaw.usmsocial.entities.user.ProfilePicture;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * Repository interface for managing profile picture image data in the database.
+ */
+public interface ProfilePictureRepository extends JpaRepository<ProfilePicture, String> {
+}
@@ -0,0 +1,30 @@
+package me.yattaw.usmsocial.repositories;
+
+import me.yattaw.usmsocial.entities.user.ProfileThumbnail;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+/**
+ * Repository interface for managing profile picture thumbnails in the database.
+ */
+public interface ProfileThumbnailRepository extends JpaRepository<ProfileThumbnail, Integer> {
+
+    /**
+     * Finds the smallest thumbnail of a profile picture that is at least the requested size.
+     *
+     * @param sourceHash The content hash of the original profile picture.
+     * @param size       The minimum width and height in pixels.
+     * @return An optional containing the thumbnail, or empty if none is large enough.
+     */
+    Optional<ProfileThumbnail> findFirstBySourceHashAndSizeGreaterThanEqualOrderBySizeAsc(String sourceHash, int size);
+
+    /**
+     * Checks whether thumbnails have been generated for a profile picture.
+     *
+     * @param sourceHash The content hash of the original profile picture.
+     * @return True if at least one thumbnail exists, false otherwise.
+     */
+    boolean existsBySourceHash(String sourceHash);
+
+}
@@ -3,9 +3,22 @@ package me.yattaw.usmsocial.repositories;
 import me.yattaw.usmsocial.entities.report.UserReport;
 import me.yattaw.usmsocial.entities.user.UserGroups;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 /**
  * Repository for UserGroups.
  */
 public interface UserGroupRepository extends JpaRepository<UserGroups, Integer> {
 
+    /**
+     * Retrieves the IDs of the members of a group without loading the members.
+     *
+     * @param groupId The ID of the group.
+     * @return A list of the user IDs of the members.
+     */
+    @Query(value = "SELECT user_id FROM usm_social_groups_mapping WHERE group_id = :groupId", nativeQuery = true)
+    List<Integer> getMemberIds(@Param("groupId") Integer groupId);
+
 }
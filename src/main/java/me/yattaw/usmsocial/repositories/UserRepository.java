@@ -1,10 +1,12 @@
 package me.yattaw.usmsocial.repositories;
 
+import jakarta.transaction.Transactional;
 import me.yattaw.usmsocial.entities.user.User;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -42,4 +44,35 @@ public interface UserRepository extends JpaRepository<User, Integer> {
             value = "SELECT * FROM usm_social_users WHERE LOCATE(:queryItem, LOWER(first_name)) > 0 OR LOCATE(:queryItem, LOWER(last_name)) > 0 OR LOCATE(:queryItem, LOWER(CONCAT(first_name, last_name))) > 0 ORDER BY first_name ASC, last_name ASC",
             nativeQuery = true)
     Page<User> getUserSearchName(@Param("queryItem") String queryItem, Pageable pageable);
-}
\ No newline at end of file
+
+    /**
+     * Updates the profile information of a user, leaving every other column untouched.
+     *
+     * @param userId    The ID of the user.
+     * @param firstName The new first name.
+     * @param lastName  The new last name.
+     * @param email     The new email.
+     * @param tagLine   The new tag line.
+     * @param bio       The new bio.
+     * @return The number of updated users.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.firstName = :firstName, u.lastName = :lastName, u.email = :email, " +
+            "u.tagLine = :tagLine, u.bio = :bio WHERE u.id = :userId")
+    int updateProfile(@Param("userId") Integer userId, @Param("firstName") String firstName,
+                      @Param("lastName") String lastName, @Param("email") String email,
+                      @Param("tagLine") String tagLine, @Param("bio") String bio);
+
+    /**
+     * Sets the profile picture of a user, leaving every other column untouched.
+     *
+     * @param userId             The ID of the user.
+     * @param profilePictureHash The content hash of the new profile picture.
+     * @return The number of updated users.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.profilePictureHash = :profilePictureHash WHERE u.id = :userId")
+    int updateProfilePictureHash(@Param("userId") Integer userId, @Param("profilePictureHash") String profilePictureHash);
+}
@@ -0,0 +1,61 @@
+package me.yattaw.usmsocial.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import me.yattaw.usmsocial.entities.user.User;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * Service class that resolves the user a request was authenticated as.
+ *
+ * <p>
+ * The user is stored on the request the first time it is resolved, normally by
+ * {@link me.yattaw.usmsocial.config.JwtAuthFilter} while authenticating the request, so every
+ * later lookup during the same request reuses it instead of querying the database again.
+ * </p>
+ *
+ * @version 17 April 2024
+ */
+@Service
+@RequiredArgsConstructor
+public class CurrentUserService {
+
+    private static final String CURRENT_USER_ATTRIBUTE = CurrentUserService.class.getName() + ".currentUser";
+
+    private final JwtService jwtService;
+    private final UserCacheService userCacheService;
+
+    /**
+     * Stores the authenticated user of a request.
+     *
+     * @param request The HTTP servlet request.
+     * @param user    The user the request was authenticated as.
+     */
+    public void setCurrentUser(HttpServletRequest request, User user) {
+        request.setAttribute(CURRENT_USER_ATTRIBUTE, Optional.ofNullable(user));
+    }
+
+    /**
+     * Retrieves the user the request was authenticated as, looking it up from the token
+     * only if the request has not resolved it yet.
+     *
+     * @param request The HTTP servlet request.
+     * @return An optional containing the current user, or empty if the request has no valid user.
+     */
+    @SuppressWarnings("unchecked")
+    public Optional<User> getCurrentUser(HttpServletRequest request) {
+        Object cached = request.getAttribute(CURRENT_USER_ATTRIBUTE);
+        if (cached != null) {
+            return (Optional<User>) cached;
+        }
+
+        String token = jwtService.extractToken(request);
+        Optional<User> user = token == null ? Optional.empty() : userCacheService.findByEmail(jwtService.fetchEmail(token))
+                .filter(found -> jwtService.isValidToken(token, found));
+        request.setAttribute(CURRENT_USER_ATTRIBUTE, user);
+        return user;
+    }
+
+}
@@ -1,22 +1,30 @@
 package me.yattaw.usmsocial.service;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import jakarta.servlet.http.HttpServletRequest;
-import org.springframework.security.core.userdetails.User;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import me.yattaw.usmsocial.entities.user.Role;
+import me.yattaw.usmsocial.entities.user.User;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import java.security.Key;
 import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 /**
  * Service class responsible for handling JWT (JSON Web Token) related operations.
@@ -30,11 +38,34 @@ import java.util.function.Function;
  * Note: The key used for token verification is defined as a static final field in this class.
  * </p>
  *
+ * <p>
+ * A single request reads the claims of its token several times, so verified claims are cached by
+ * token until the token expires. The signature of a token is only checked on a cache miss.
+ * </p>
+ *
  * @version 17 April 2024
  */
+@Slf4j
 @Service
+@RequiredArgsConstructor
 public class JwtService {
 
+    /**
+     * How long a generated token stays valid. Requests are authorized from the role claim of the
+     * token, so a lowered role only takes effect for new tokens unless the old ones are revoked.
+     */
+    public static final Duration TOKEN_LIFETIME = Duration.ofMinutes(15);
+
+    /**
+     * Claim holding the ID of the user a token was issued to.
+     */
+    public static final String USER_ID_CLAIM = "uid";
+
+    /**
+     * Claim holding the {@link Role} of the user a token was issued to.
+     */
+    public static final String ROLE_CLAIM = "role";
+
     private static final String AUTH_HEADER = "Authorization";
     private static final String BEARER_PREFIX = "Bearer ";
 
@@ -43,6 +74,30 @@ public class JwtService {
             Decoders.BASE64.decode("9216CDCD3ECB8F4F3F09A2F8CC1D0279B2716B73FA9571A6672D1E6ADF1C52F5")
     );
 
+    // Parsers are immutable and thread-safe, so one is shared by every verification
+    private static final JwtParser PARSER = Jwts.parserBuilder()
+            .setSigningKey(SECRET_KEY)
+            .build();
+
+    /**
+     * The maximum number of verified tokens kept in memory.
+     */
+    private static final int MAX_CACHED_TOKENS = 10_000;
+
+    private final Map<String, Claims> verifiedClaims = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Claims> eldest) {
+                    return size() > MAX_CACHED_TOKENS;
+                }
+            }
+    );
+
+    private final TokenRevocationService tokenRevocationService;
+
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
     /**
      * Extracts the email from the JWT token.
      *
@@ -53,6 +108,39 @@ public class JwtService {
         return fetchClaims(token, Claims::getSubject);
     }
 
+    /**
+     * Extracts the ID of the user a token was issued to.
+     *
+     * @param token The JWT token.
+     * @return The user ID, or null if the token predates the claim.
+     */
+    public Integer fetchUserId(String token) {
+        return fetchClaims(token, claims -> claims.get(USER_ID_CLAIM, Integer.class));
+    }
+
+    /**
+     * Extracts the role of the user at the time a token was issued.
+     *
+     * @param token The JWT token.
+     * @return The role, or null if the token predates the claim.
+     */
+    public Role fetchRole(String token) {
+        String role = fetchClaims(token, claims -> claims.get(ROLE_CLAIM, String.class));
+        return role == null ? null : Role.valueOf(role);
+    }
+
+    /**
+     * Checks whether a token was revoked, either because its user was deleted or because its
+     * user's tokens were revoked after it was issued.
+     *
+     * @param token  The JWT token.
+     * @param userId The ID of the user the token was issued to.
+     * @return True if the token was revoked, false otherwise.
+     */
+    public boolean isTokenRevoked(String token, Integer userId) {
+        return tokenRevocationService.isRevoked(userId, fetchClaims(token, Claims::getIssuedAt));
+    }
+
     /**
      * Retrieves claims from the JWT token using the provided claims resolver function.
      *
@@ -68,13 +156,15 @@ public class JwtService {
 
     /**
      * Validates whether the provided token is valid for the given UserDetails.
+     * Tokens issued before the user's tokens were revoked are not valid.
      *
      * @param token        The JWT token to be validated.
      * @param userDetails  The UserDetails object representing the user details.
      * @return True if the token is valid for the provided user details, false otherwise.
      */
     public boolean isValidToken(String token, UserDetails userDetails) {
-        return fetchEmail(token).equals(userDetails.getUsername()) && !isTokenExpired(token);
+        return fetchEmail(token).equals(userDetails.getUsername()) && !isTokenExpired(token)
+                && !(userDetails instanceof User user && isTokenRevoked(token, user.getId()));
     }
 
     /**
@@ -89,26 +179,85 @@ public class JwtService {
     }
 
 
-    public String generateToken(Map<String, Objects> claims, UserDetails userDetails) {
+    public String generateToken(Map<String, Object> claims, UserDetails userDetails) {
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(Timestamp.valueOf(LocalDateTime.now()))
-                .setExpiration(Timestamp.valueOf(LocalDateTime.now().plusMinutes(180)))
+                .setExpiration(Timestamp.valueOf(LocalDateTime.now().plus(TOKEN_LIFETIME)))
                 .signWith(SECRET_KEY, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    /**
+     * Generates a token for a user. Tokens of application users carry the user ID and role
+     * as signed claims, so requests can be authorized without loading the user.
+     *
+     * @param userDetails The user the token is issued to.
+     * @return The signed JWT token.
+     */
     public String generateToken(UserDetails userDetails) {
-        return generateToken(new HashMap<>(), userDetails);
+        Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof User user) {
+            claims.put(USER_ID_CLAIM, user.getId());
+            claims.put(ROLE_CLAIM, user.getRole().name());
+        }
+        return generateToken(claims, userDetails);
     }
 
+    /**
+     * Retrieves the verified claims of the JWT token, verifying its signature only if the
+     * token is not cached yet.
+     *
+     * @param token The JWT token from which claims need to be retrieved.
+     * @return The claims of the token.
+     */
     public Claims fetchClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(SECRET_KEY)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        Claims claims = verifiedClaims.get(token);
+        if (claims != null && claims.getExpiration().after(new Date())) {
+            cacheHits.increment();
+            return claims;
+        }
+
+        cacheMisses.increment();
+        // Expired tokens are parsed again so the caller gets the same exception as before
+        claims = PARSER.parseClaimsJws(token).getBody();
+        verifiedClaims.put(token, claims);
+        return claims;
+    }
+
+    /**
+     * Retrieves the number of claim lookups answered from the cache.
+     *
+     * @return The number of cache hits since startup.
+     */
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * Retrieves the number of claim lookups that had to verify the token.
+     *
+     * @return The number of cache misses since startup.
+     */
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    /**
+     * Drops cached claims of expired tokens and logs the cache statistics.
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void evictExpiredClaims() {
+        Date now = new Date();
+        synchronized (verifiedClaims) {
+            verifiedClaims.values().removeIf(claims -> !claims.getExpiration().after(now));
+        }
+
+        long hits = getCacheHits();
+        long misses = getCacheMisses();
+        log.debug("JWT cache: {} tokens, {} hits, {} misses, {}% hit rate", verifiedClaims.size(), hits, misses,
+                hits + misses == 0 ? 0 : hits * 100 / (hits + misses));
     }
 
     public String extractToken(HttpServletRequest request) {
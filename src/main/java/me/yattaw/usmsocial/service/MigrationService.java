@@ -0,0 +1,94 @@
+package me.yattaw.usmsocial.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Service class that runs one-time data migrations, such as backfilling a newly added column.
+ *
+ * <p>
+ * Migrations are meant to be run from <code>@PostConstruct</code> methods, so they finish before
+ * the web server starts accepting requests. Each migration is claimed by inserting its name into
+ * <code>usm_social_migrations</code> in the same transaction that runs it, so it is applied exactly
+ * once even when several instances start at the same time, and retried on the next start if it fails.
+ * </p>
+ *
+ * @version 17 April 2024
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@DependsOn("entityManagerFactory")
+public class MigrationService {
+
+    private static final String APPLIED_SQL = "SELECT EXISTS (SELECT 1 FROM usm_social_migrations WHERE name = ?)";
+
+    private static final String CLAIM_SQL = "INSERT IGNORE INTO usm_social_migrations (name, applied_at) VALUES (?, NOW())";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * Runs a migration unless it has already been applied.
+     *
+     * @param name      The unique name of the migration, at most 64 characters.
+     * @param migration The migration to run.
+     * @return True if the migration ran, false if it had already been applied.
+     */
+    public boolean runOnce(String name, Runnable migration) {
+        Boolean applied = new TransactionTemplate(transactionManager).execute(status -> {
+            // Other instances block on the inserted row until this transaction ends
+            if (jdbcTemplate.update(CLAIM_SQL, name) == 0) {
+                return false;
+            }
+            migration.run();
+            return true;
+        });
+
+        if (Boolean.TRUE.equals(applied)) {
+            log.info("Applied migration {}", name);
+        }
+        return Boolean.TRUE.equals(applied);
+    }
+
+    /**
+     * Runs a migration made of batches unless it has already been applied. Each batch is committed
+     * in its own transaction, so no lock or undo log is held for the whole migration.
+     *
+     * <p>
+     * The migration is only recorded as applied after a batch changed fewer rows than the batch size,
+     * so a migration that fails part way resumes on the next start. Batches must therefore only touch
+     * rows that have not been migrated yet, which also makes instances starting at the same time safe.
+     * </p>
+     *
+     * @param name      The unique name of the migration, at most 64 characters.
+     * @param batch     Migrates the next batch and returns the number of changed rows.
+     * @param batchSize The maximum number of rows changed by a batch.
+     * @return True if the migration ran, false if it had already been applied.
+     */
+    public boolean runInBatches(String name, IntSupplier batch, int batchSize) {
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(APPLIED_SQL, Boolean.class, name))) {
+            return false;
+        }
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long total = 0;
+        Integer changed;
+        do {
+            changed = transactionTemplate.execute(status -> batch.getAsInt());
+            total += changed == null ? 0 : changed;
+        } while (changed != null && changed >= batchSize);
+
+        jdbcTemplate.update(CLAIM_SQL, name);
+        log.info("Applied migration {}, {} rows changed", name, total);
+        return true;
+    }
+
+}
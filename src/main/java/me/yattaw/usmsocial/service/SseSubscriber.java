@@ -0,0 +1,129 @@
+package me.yattaw.usmsocial.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A Server-Sent Events connection with its own bounded queue of pending events.
+ *
+ * <p>
+ * Publishing an event only adds it to the queue. The queue is drained by a task on the stream executor,
+ * at most one per subscriber, so a slow client only delays its own events and never the delivery to
+ * other clients. A client that falls more than {@link #MAX_PENDING_EVENTS} events behind is disconnected
+ * and catches up after reconnecting, the same way as after any other disconnect.
+ * </p>
+ *
+ * @version 17 April 2024
+ */
+@Slf4j
+public class SseSubscriber {
+
+    /**
+     * The maximum number of events waiting to be sent to one client.
+     */
+    private static final int MAX_PENDING_EVENTS = 32;
+
+    private final SseEmitter emitter;
+    private final Executor executor;
+    private final Queue<SseEmitter.SseEventBuilder> pending = new ArrayBlockingQueue<>(MAX_PENDING_EVENTS);
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile Runnable onClose = () -> { };
+
+    /**
+     * Opens a connection.
+     *
+     * @param timeout  How long the connection stays open before the client has to reconnect.
+     * @param executor The executor the events are sent on.
+     */
+    public SseSubscriber(Duration timeout, Executor executor) {
+        this.emitter = new SseEmitter(timeout.toMillis());
+        this.executor = executor;
+
+        Runnable close = () -> {
+            if (closed.compareAndSet(false, true)) {
+                pending.clear();
+                onClose.run();
+            }
+        };
+        emitter.onCompletion(close);
+        emitter.onTimeout(close);
+        emitter.onError(error -> close.run());
+    }
+
+    /**
+     * Sets the callback run once when the connection is closed for any reason.
+     *
+     * @param onClose The callback, e.g. removing the subscriber from its registry.
+     */
+    public void onClose(Runnable onClose) {
+        this.onClose = onClose;
+    }
+
+    /**
+     * Retrieves the emitter to return from the controller.
+     *
+     * @return The emitter of the connection.
+     */
+    public SseEmitter getEmitter() {
+        return emitter;
+    }
+
+    /**
+     * Queues an event to be sent to the client.
+     *
+     * @param event The event to send.
+     */
+    public void send(SseEmitter.SseEventBuilder event) {
+        if (closed.get()) {
+            return;
+        }
+        if (!pending.offer(event)) {
+            // The client is not keeping up, it reconnects and catches up instead
+            emitter.complete();
+            return;
+        }
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this::drain);
+        } catch (TaskRejectedException e) {
+            // The client reconnects and catches up, which is better than failing the publishing request
+            log.warn("Disconnecting an event stream client, the stream executor is saturated");
+            draining.set(false);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void drain() {
+        try {
+            SseEmitter.SseEventBuilder event;
+            while ((event = pending.poll()) != null) {
+                emitter.send(event);
+            }
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+        } finally {
+            draining.set(false);
+        }
+
+        // An event queued after the last poll but before the flag was cleared would otherwise wait for the next one
+        if (!pending.isEmpty() && !closed.get()) {
+            scheduleDrain();
+        }
+    }
+
+}
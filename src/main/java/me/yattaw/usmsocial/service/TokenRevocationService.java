@@ -0,0 +1,107 @@
+package me.yattaw.usmsocial.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Service class that checks whether a token was revoked, without loading the user it was issued to.
+ *
+ * <p>
+ * A token is revoked when its user was deleted, or when it was issued before the
+ * <code>token_valid_after</code> time stored for its user, e.g. because the password was changed.
+ * Only that column is read, and it is kept in a bounded in-memory map for a short time, so
+ * authenticating a request from its token claims usually needs no database access. Revocations
+ * made by this instance are applied immediately through {@link #invalidate(Integer)}, revocations
+ * made by other instances once the cached entry expires.
+ * </p>
+ *
+ * @version 17 April 2024
+ */
+@Service
+@RequiredArgsConstructor
+public class TokenRevocationService {
+
+    /**
+     * The maximum number of users whose revocation time is kept in memory.
+     */
+    private static final int MAX_CACHED_USERS = 10_000;
+
+    /**
+     * How long a cached revocation time is used before it is read from the database again.
+     */
+    private static final Duration TIME_TO_LIVE = Duration.ofSeconds(30);
+
+    private static final String SELECT_SQL = "SELECT token_valid_after FROM usm_social_users WHERE user_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Integer, CachedValidity> validities = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, CachedValidity> eldest) {
+                    return size() > MAX_CACHED_USERS;
+                }
+            }
+    );
+
+    /**
+     * The revocation state of a user.
+     *
+     * @param exists     Whether the user exists.
+     * @param validAfter The time tokens must be issued after, or null if no token was revoked.
+     * @param expiresAt  The time this entry is read from the database again.
+     */
+    private record CachedValidity(boolean exists, Timestamp validAfter, long expiresAt) {
+    }
+
+    /**
+     * Checks whether a token issued to a user has been revoked.
+     *
+     * @param userId   The ID of the user the token was issued to.
+     * @param issuedAt The time the token was issued.
+     * @return True if the user was deleted or the token was issued before its tokens were revoked.
+     */
+    public boolean isRevoked(Integer userId, Date issuedAt) {
+        CachedValidity validity = getValidity(userId);
+        if (!validity.exists()) {
+            return true;
+        }
+        // Issue times only have second precision, so a token issued in the same second is treated as revoked
+        return validity.validAfter() != null && (issuedAt == null || !issuedAt.after(validity.validAfter()));
+    }
+
+    /**
+     * Drops the cached revocation state of a user after its tokens were revoked or the user was deleted.
+     *
+     * @param userId The ID of the user.
+     */
+    public void invalidate(Integer userId) {
+        validities.remove(userId);
+    }
+
+    private CachedValidity getValidity(Integer userId) {
+        CachedValidity cached = validities.get(userId);
+        if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+            return cached;
+        }
+
+        List<Optional<Timestamp>> stored = jdbcTemplate.query(SELECT_SQL,
+                (resultSet, rowNumber) -> Optional.ofNullable(resultSet.getTimestamp(1)), userId);
+        CachedValidity loaded = new CachedValidity(!stored.isEmpty(),
+                stored.isEmpty() ? null : stored.get(0).orElse(null),
+                System.currentTimeMillis() + TIME_TO_LIVE.toMillis());
+        validities.put(userId, loaded);
+        return loaded;
+    }
+
+}
@@ -0,0 +1,106 @@
+package me.yattaw.usmsocial.service;
+
+import lombok.RequiredArgsConstructor;
+import me.yattaw.usmsocial.entities.user.User;
+import me.yattaw.usmsocial.repositories.UserRepository;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Service class that caches users by email for authentication.
+ *
+ * <p>
+ * Every request carrying a token loads its user by email, so recently seen users are kept in a
+ * bounded in-memory cache for a short time. Each lookup returns a fresh copy of the cached user,
+ * so changes made while handling one request never leak into another. Code that modifies a user
+ * must call {@link #evict(String)} after saving the change, so the next lookup reads the new values.
+ * </p>
+ *
+ * @version 17 April 2024
+ */
+@Service
+@RequiredArgsConstructor
+public class UserCacheService {
+
+    /**
+     * The maximum number of users kept in memory.
+     */
+    private static final int MAX_CACHED_USERS = 10_000;
+
+    /**
+     * How long a cached user is used before it is read from the database again.
+     */
+    private static final Duration TIME_TO_LIVE = Duration.ofMinutes(5);
+
+    private final UserRepository userRepository;
+
+    private final Map<String, CachedUser> users = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedUser> eldest) {
+                    return size() > MAX_CACHED_USERS;
+                }
+            }
+    );
+
+    private record CachedUser(User user, long expiresAt) {
+    }
+
+    /**
+     * Finds a user by email, reading it from the database only if it is not cached.
+     *
+     * <p>
+     * The result is always a detached copy, whether or not the user was cached, so callers see the
+     * same object either way. The copy does not include the lazily loaded groups of the user.
+     * </p>
+     *
+     * @param email The email of the user.
+     * @return An optional containing a copy of the user, or empty if not found.
+     */
+    public Optional<User> findByEmail(String email) {
+        CachedUser cached = users.get(email);
+        if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+            return Optional.of(copyOf(cached.user()));
+        }
+
+        Optional<User> user = userRepository.findByEmail(email);
+        user.ifPresent(found -> users.put(email,
+                new CachedUser(copyOf(found), System.currentTimeMillis() + TIME_TO_LIVE.toMillis())));
+        return user.map(this::copyOf);
+    }
+
+    /**
+     * Removes a user from the cache after it was modified or deleted.
+     *
+     * @param email The email of the user.
+     */
+    public void evict(String email) {
+        users.remove(email);
+    }
+
+    private User copyOf(User user) {
+        return User.builder()
+                .id(user.getId())
+                .firstName(user.getFirstName())
+                .lastName(user.getLastName())
+                .email(user.getEmail())
+                .password(user.getPassword())
+                .tagLine(user.getTagLine())
+                .bio(user.getBio())
+                .role(user.getRole())
+                .profilePictureHash(user.getProfilePictureHash())
+                .verificationToken(user.getVerificationToken())
+                .verified(user.isVerified())
+                .timestamp(user.getTimestamp())
+                .tokenValidAfter(user.getTokenValidAfter())
+                .followerCount(user.getFollowerCount())
+                .followingCount(user.getFollowingCount())
+                .build();
+    }
+
+}
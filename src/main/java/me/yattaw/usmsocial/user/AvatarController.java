@@ -0,0 +1,76 @@
+package me.yattaw.usmsocial.user;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Controller class that serves profile pictures as binary images.
+ *
+ * <p>
+ * Pictures are addressed by the hash of their content, so a URL always refers to the same bytes.
+ * Responses carry a strong ETag and may be cached by browsers and proxies for a year, except when the
+ * original picture stands in for a thumbnail that is still being generated.
+ * </p>
+ *
+ * @version 17 April 2024
+ */
+@RestController
+@RequestMapping("/api/v1/avatar")
+@RequiredArgsConstructor
+public class AvatarController {
+
+    private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+
+    private final AvatarService service;
+
+    /**
+     * Retrieves the profile picture with the given content hash.
+     *
+     * @param hash       The content hash of the profile picture.
+     * @param size       The requested width and height in pixels, omitted for the original picture.
+     * @param webRequest The current request, used to answer conditional requests.
+     * @return ResponseEntity containing the image data, or 304 if the client already has it.
+     */
+    @GetMapping("/{hash}")
+    public ResponseEntity<byte[]> getAvatar(
+            @PathVariable String hash,
+            @RequestParam(name = "size", required = false) Integer size,
+            WebRequest webRequest) {
+        String eTag = "\"" + hash + (size == null ? "" : "-" + size) + "\"";
+        if (webRequest.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(CACHE_CONTROL).build();
+        }
+
+        Optional<AvatarService.Avatar> avatar = service.getAvatar(hash, size);
+        if (avatar.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        byte[] imageData = avatar.get().imageData();
+        if (avatar.get().provisional()) {
+            // The thumbnail replaces this response once generated, so it must not be cached under its URL
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache())
+                    .contentType(service.getMediaType(imageData))
+                    .body(imageData);
+        }
+
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(CACHE_CONTROL)
+                .contentType(service.getMediaType(imageData))
+                .body(imageData);
+    }
+
+}
@@ -0,0 +1,163 @@
+package me.yattaw.usmsocial.user;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import me.yattaw.usmsocial.entities.user.AvatarSize;
+import me.yattaw.usmsocial.entities.user.ProfileThumbnail;
+import me.yattaw.usmsocial.entities.user.ProfilePicture;
+import me.yattaw.usmsocial.repositories.ProfilePictureRepository;
+import me.yattaw.usmsocial.repositories.ProfileThumbnailRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Service class responsible for content-addressed profile pictures.
+ *
+ * <p>
+ * Profile pictures are identified by the SHA-256 hash of their bytes. Responses only carry the
+ * URL derived from the hash, and the picture itself is served as binary by {@link AvatarController}.
+ * </p>
+ *
+ * @version 17 April 2024
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AvatarService {
+
+    /**
+     * The number of legacy pictures read per query, bounding how many are held in memory at once.
+     */
+    private static final int LEGACY_PICTURE_BATCH_SIZE = 20;
+
+    private static final String LEGACY_PICTURES_SQL = "SELECT user_id, profile_picture FROM usm_social_users " +
+            "WHERE profile_picture IS NOT NULL AND user_id > ? ORDER BY user_id LIMIT " + LEGACY_PICTURE_BATCH_SIZE;
+
+    private static final String CLEAR_LEGACY_PICTURE_SQL =
+            "UPDATE usm_social_users SET profile_picture_hash = ?, profile_picture = NULL WHERE user_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProfilePictureRepository profilePictureRepository;
+    private final ProfileThumbnailRepository thumbnailRepository;
+    private final ThumbnailService thumbnailService;
+
+    /**
+     * Computes the content hash of a profile picture.
+     *
+     * @param imageData The profile picture image data.
+     * @return The lowercase hex encoded SHA-256 hash of the image data.
+     */
+    public String hash(byte[] imageData) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(imageData));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM.", e);
+        }
+    }
+
+    /**
+     * Retrieves the profile picture with the given content hash.
+     *
+     * <p>When a size is requested the smallest thumbnail at least that large is returned. The original
+     * picture is returned if no such thumbnail exists yet, in which case the thumbnails are generated
+     * in the background and the result is marked as provisional.</p>
+     *
+     * @param hash The content hash of the profile picture.
+     * @param size The requested width and height in pixels, or null for the original picture.
+     * @return Optional of the image if found, otherwise empty.
+     */
+    public Optional<Avatar> getAvatar(String hash, Integer size) {
+        if (size != null) {
+            Optional<ProfileThumbnail> thumbnail = thumbnailRepository
+                    .findFirstBySourceHashAndSizeGreaterThanEqualOrderBySizeAsc(hash, size);
+            if (thumbnail.isPresent()) {
+                return thumbnail.map(found -> new Avatar(found.getImageData(), false));
+            }
+        }
+
+        Optional<byte[]> original = profilePictureRepository.findById(hash).map(ProfilePicture::getImageData);
+        boolean thumbnailPending = size != null && size <= AvatarSize.LARGE.getPixels();
+        if (thumbnailPending) {
+            original.ifPresent(imageData -> thumbnailService.generateThumbnails(hash, imageData));
+        }
+        return original.map(imageData -> new Avatar(imageData, thumbnailPending));
+    }
+
+    /**
+     * A profile picture image.
+     *
+     * @param imageData   The image data.
+     * @param provisional True if the original picture stands in for a thumbnail that is still
+     *                    being generated, so the response must not be cached as the thumbnail.
+     */
+    public record Avatar(byte[] imageData, boolean provisional) {
+    }
+
+    /**
+     * Guesses the media type of an image from its leading bytes.
+     *
+     * @param imageData The image data.
+     * @return The media type of the image, or {@code application/octet-stream} if unknown.
+     */
+    public MediaType getMediaType(byte[] imageData) {
+        try {
+            String contentType = URLConnection.guessContentTypeFromStream(new ByteArrayInputStream(imageData));
+            return contentType == null ? MediaType.APPLICATION_OCTET_STREAM : MediaType.parseMediaType(contentType);
+        } catch (IOException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+
+    /**
+     * Moves profile pictures still stored in the legacy <code>profile_picture</code> column of
+     * <code>usm_social_users</code> into <code>usm_social_profile_pictures</code>.
+     * Rows are read in small batches ordered by user ID, so only a few pictures are held in memory
+     * regardless of how many users still have one.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacyPictures() {
+        int migrated = 0;
+        int lastUserId = 0;
+        List<LegacyPicture> batch;
+        do {
+            try {
+                batch = jdbcTemplate.query(LEGACY_PICTURES_SQL, (resultSet, rowNumber) ->
+                        new LegacyPicture(resultSet.getInt("user_id"), resultSet.getBytes("profile_picture")), lastUserId);
+            } catch (BadSqlGrammarException e) {
+                // The legacy column only exists on databases created before pictures were split out
+                return;
+            }
+
+            for (LegacyPicture picture : batch) {
+                String hash = hash(picture.imageData());
+                if (!profilePictureRepository.existsById(hash)) {
+                    profilePictureRepository.save(ProfilePicture.builder().hash(hash).imageData(picture.imageData()).build());
+                }
+                jdbcTemplate.update(CLEAR_LEGACY_PICTURE_SQL, hash, picture.userId());
+                lastUserId = picture.userId();
+                migrated++;
+            }
+        } while (batch.size() == LEGACY_PICTURE_BATCH_SIZE);
+
+        if (migrated > 0) {
+            log.info("Moved profile pictures of {} users to their own table", migrated);
+        }
+    }
+
+    private record LegacyPicture(int userId, byte[] imageData) {
+    }
+
+}
@@ -0,0 +1,191 @@
+package me.yattaw.usmsocial.user;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import me.yattaw.usmsocial.entities.user.AvatarSize;
+import me.yattaw.usmsocial.entities.user.ProfileThumbnail;
+import me.yattaw.usmsocial.repositories.ProfileThumbnailRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service class that generates fixed-size thumbnails of profile pictures.
+ *
+ * <p>
+ * Thumbnails are generated in the background on the {@code imageExecutor}, so uploading a picture
+ * does not wait for the resize work. Until they exist the original picture is served instead.
+ * Pictures wider or taller than {@link #MAX_IMAGE_SIDE} pixels are never decoded, their size is read
+ * from the image header first.
+ * </p>
+ *
+ * @version 17 April 2024
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ThumbnailService {
+
+    /**
+     * The maximum width and height in pixels of a profile picture.
+     */
+    public static final int MAX_IMAGE_SIDE = 4_096;
+
+    private final ProfileThumbnailRepository thumbnailRepository;
+
+    /**
+     * Content hashes of the pictures whose thumbnails are being generated.
+     */
+    private final Set<String> inProgress = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Generates every {@link AvatarSize} thumbnail of an already decoded profile picture.
+     *
+     * @param sourceHash The content hash of the original profile picture.
+     * @param image      The decoded profile picture.
+     */
+    @Async("imageExecutor")
+    public void generateThumbnails(String sourceHash, BufferedImage image) {
+        generate(sourceHash, () -> image);
+    }
+
+    /**
+     * Decodes a profile picture and generates its thumbnails, used for pictures
+     * uploaded before thumbnails were generated. The picture is only decoded if its
+     * thumbnails are neither generated nor being generated.
+     *
+     * @param sourceHash The content hash of the original profile picture.
+     * @param imageData  The original profile picture image data.
+     */
+    @Async("imageExecutor")
+    public void generateThumbnails(String sourceHash, byte[] imageData) {
+        generate(sourceHash, () -> decode(imageData));
+    }
+
+    /**
+     * Reads the width and height of an image from its header without decoding its pixels.
+     *
+     * @param imageData The image data.
+     * @return The size of the image, or null if the format is not supported or the data is malformed.
+     */
+    public static Dimension readSize(byte[] imageData) {
+        try (ImageInputStream inputStream = ImageIO.createImageInputStream(new ByteArrayInputStream(imageData))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(inputStream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(inputStream, true, true);
+                return new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void generate(String sourceHash, ImageSource source) {
+        if (!inProgress.add(sourceHash)) {
+            return;
+        }
+
+        try {
+            if (thumbnailRepository.existsBySourceHash(sourceHash)) {
+                return;
+            }
+
+            BufferedImage image = source.load();
+            if (image == null) {
+                log.warn("Profile picture {} cannot be decoded or is too large", sourceHash);
+                return;
+            }
+
+            for (AvatarSize size : AvatarSize.values()) {
+                thumbnailRepository.save(ProfileThumbnail.builder()
+                        .sourceHash(sourceHash)
+                        .size(size.getPixels())
+                        .imageData(encodeJpeg(resize(image, size.getPixels())))
+                        .build());
+            }
+        } catch (DataIntegrityViolationException e) {
+            // Another instance inserted the thumbnails first, so they are already generated
+            log.debug("Thumbnails for profile picture {} were generated concurrently", sourceHash);
+        } catch (IOException e) {
+            log.warn("Failed to generate thumbnails for profile picture {}", sourceHash, e);
+        } finally {
+            inProgress.remove(sourceHash);
+        }
+    }
+
+    /**
+     * Crops the center square of an image and scales it down to the given size.
+     *
+     * @param image  The image to resize.
+     * @param pixels The width and height of the result in pixels.
+     * @return The resized image.
+     */
+    private BufferedImage resize(BufferedImage image, int pixels) {
+        int side = Math.min(image.getWidth(), image.getHeight());
+        BufferedImage current = image.getSubimage(
+                (image.getWidth() - side) / 2, (image.getHeight() - side) / 2, side, side);
+
+        // Halve the image repeatedly before the final step, plain bilinear scaling loses detail on large factors
+        int currentSide = side;
+        do {
+            currentSide = Math.max(pixels, currentSide / 2);
+            BufferedImage scaled = new BufferedImage(currentSide, currentSide, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = scaled.createGraphics();
+            // JPEG has no alpha channel, so transparent pixels are drawn on white
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, currentSide, currentSide);
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(current, 0, 0, currentSide, currentSide, null);
+            graphics.dispose();
+            current = scaled;
+        } while (currentSide > pixels);
+
+        return current;
+    }
+
+    private static BufferedImage decode(byte[] imageData) throws IOException {
+        Dimension size = readSize(imageData);
+        if (size == null || size.width > MAX_IMAGE_SIDE || size.height > MAX_IMAGE_SIDE) {
+            return null;
+        }
+        return ImageIO.read(new ByteArrayInputStream(imageData));
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", outputStream);
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Supplies the image thumbnails are generated from, decoding it only when it is needed.
+     */
+    @FunctionalInterface
+    private interface ImageSource {
+
+        BufferedImage load() throws IOException;
+    }
+
+}
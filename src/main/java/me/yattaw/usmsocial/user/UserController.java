@@ -12,6 +12,7 @@ import me.yattaw.usmsocial.user.responses.UserFollowingCountResponse;
 import me.yattaw.usmsocial.user.responses.UserInfoResponse;
 import me.yattaw.usmsocial.user.responses.UserProfilePicture;
 import me.yattaw.usmsocial.user.responses.UserSearchResponse;
+import me.yattaw.usmsocial.user.responses.UserSuggestionResponse;
 
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -212,6 +213,24 @@ public class UserController {
         );
     }
 
+    /**
+     * Retrieves users the current user may know, ranked by the number of mutual follows.
+     *
+     * @param pageNumber The page number for pagination.
+     * @param pageSize   The page size for pagination.
+     * @return ResponseEntity containing the user suggestion response.
+     */
+    @GetMapping("/suggestions")
+    public ResponseEntity<UserSuggestionResponse> getSuggestions(
+        @RequestParam(defaultValue = "0") Integer pageNumber,
+        @RequestParam(defaultValue = "10") Integer pageSize) {
+        return ResponseEntity.ok(service.getSuggestions(
+            ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest(),
+            pageNumber,
+            pageSize)
+        );
+    }
+
     /**
      * Reports a user based on the specified report request.
      *
@@ -4,15 +4,21 @@ import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import me.yattaw.usmsocial.entities.report.UserReport;
 import me.yattaw.usmsocial.entities.report.UserReportRequest;
+import me.yattaw.usmsocial.entities.user.AvatarSize;
+import me.yattaw.usmsocial.entities.user.ProfilePicture;
 import me.yattaw.usmsocial.entities.user.Role;
 import me.yattaw.usmsocial.entities.user.User;
-import me.yattaw.usmsocial.entities.user.UserFollowerId;
-import me.yattaw.usmsocial.entities.user.UserFollowers;
 import me.yattaw.usmsocial.entities.user.UserInfo;
+import me.yattaw.usmsocial.post.timeline.TimelineService;
 import me.yattaw.usmsocial.repositories.FollowerRepository;
+import me.yattaw.usmsocial.repositories.ProfilePictureRepository;
 import me.yattaw.usmsocial.repositories.ReportRepository;
 import me.yattaw.usmsocial.repositories.UserRepository;
-import me.yattaw.usmsocial.service.JwtService;
+import me.yattaw.usmsocial.service.CurrentUserService;
+import me.yattaw.usmsocial.service.UserCacheService;
+import me.yattaw.usmsocial.user.follow.FollowCounterService;
+import me.yattaw.usmsocial.user.follow.SocialGraphService;
+import me.yattaw.usmsocial.user.follow.SuggestionService;
 import me.yattaw.usmsocial.user.responses.AuthenicationException;
 import me.yattaw.usmsocial.user.responses.UserActionResponse;
 import me.yattaw.usmsocial.user.responses.UserFollowListResponse;
@@ -22,19 +28,31 @@ import me.yattaw.usmsocial.user.responses.UserInfoResponse;
 import me.yattaw.usmsocial.user.responses.UserProfilePicture;
 import me.yattaw.usmsocial.user.responses.UserSearch;
 import me.yattaw.usmsocial.user.responses.UserSearchResponse;
+import me.yattaw.usmsocial.user.responses.UserSuggestion;
+import me.yattaw.usmsocial.user.responses.UserSuggestionResponse;
+import me.yattaw.usmsocial.user.search.UserSearchIndex;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.AuthenticationException;
 
 import org.springframework.stereotype.Service;
 
 import javax.imageio.ImageIO;
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Service class providing various operations related to user management.
@@ -48,7 +66,16 @@ public class UserService {
     private final FollowerRepository followerRepository;
     private final ReportRepository reportRepository;
     private final UserRepository userRepository;
-    private final JwtService jwtService;
+    private final ProfilePictureRepository profilePictureRepository;
+    private final CurrentUserService currentUserService;
+    private final UserCacheService userCacheService;
+    private final TimelineService timelineService;
+    private final AvatarService avatarService;
+    private final ThumbnailService thumbnailService;
+    private final UserSearchIndex userSearchIndex;
+    private final FollowCounterService followCounterService;
+    private final SocialGraphService socialGraphService;
+    private final SuggestionService suggestionService;
 
     /**
      * Retrieves the current user based on the JWT token extracted from the servlet request.
@@ -57,8 +84,7 @@ public class UserService {
      * @return Optional containing the current user, if found.
      */
     private Optional<User> getCurrentUser(HttpServletRequest servletRequest) {
-        String token = jwtService.extractToken(servletRequest);
-        return userRepository.findByEmail(jwtService.fetchEmail(token));
+        return currentUserService.getCurrentUser(servletRequest);
     }
 
     /**
@@ -87,10 +113,15 @@ public class UserService {
 
         Optional<User> userProfile = userRepository.findById(userId);
 
-        int count = followerRepository.getUserFollowerEachOtherCount(userFetching.get().getId(), userProfile.get().getId());
-        System.out.println(count);
-        boolean isFollowing = count > 0;
-        boolean isOwnProfile = userProfile.get().getId() == userFetching.get().getId();
+        boolean isFollowing;
+        if (socialGraphService.isReady()) {
+            isFollowing = !Objects.equals(userFetching.get().getId(), userProfile.get().getId())
+                    && socialGraphService.isFollowing(userFetching.get().getId(), userProfile.get().getId());
+        } else {
+            int count = followerRepository.getUserFollowerEachOtherCount(userFetching.get().getId(), userProfile.get().getId());
+            isFollowing = count > 0;
+        }
+        boolean isOwnProfile = Objects.equals(userProfile.get().getId(), userFetching.get().getId());
         
         return UserInfoResponse.builder()
                 .user(userProfile.get().getUserInfo())
@@ -120,7 +151,13 @@ public class UserService {
     public UserProfilePicture getProfilePicture(HttpServletRequest servletRequest) {
         Optional<User> user = getCurrentUser(servletRequest);
 
-        return UserProfilePicture.builder().imageBase64((user.isEmpty()) ? "" : user.get().getBase64ProfilePicture()).build();
+        String imageBase64 = user
+                .map(User::getProfilePictureHash)
+                .flatMap(profilePictureRepository::findById)
+                .map(picture -> Base64.getEncoder().encodeToString(picture.getImageData()))
+                .orElse("");
+
+        return UserProfilePicture.builder().imageBase64(imageBase64).build();
     }
 
     /**
@@ -133,12 +170,27 @@ public class UserService {
     public UserActionResponse setProfileUserInfo(HttpServletRequest servletRequest, UserInfo userInfo) {
         Optional<User> user = getCurrentUser(servletRequest);
 
+        if (user.isEmpty()) {
+            return UserActionResponse.builder()
+                    .status(0)
+                    .message("Unable to authorize the user token.")
+                    .build();
+        }
+
+        // The current user may be a cached copy, so only the profile columns are written.
+        // Saving the copy would overwrite e.g. a password or role changed since it was cached.
+        String previousEmail = user.get().getEmail();
+        userRepository.updateProfile(user.get().getId(), userInfo.getFirstName(), userInfo.getLastName(),
+                userInfo.getEmail(), userInfo.getTagLine(), userInfo.getBio());
         user.get().setFirstName(userInfo.getFirstName());
         user.get().setLastName(userInfo.getLastName());
         user.get().setEmail(userInfo.getEmail());
         user.get().setTagLine(userInfo.getTagLine());
         user.get().setBio(userInfo.getBio());
-        userRepository.save(user.get());
+        // Evict only after the update committed, so a concurrent request cannot cache the old profile again
+        userCacheService.evict(previousEmail);
+        userCacheService.evict(user.get().getEmail());
+        userSearchIndex.index(user.get());
 
         return UserActionResponse.builder()
                 .status(1)
@@ -161,12 +213,22 @@ public class UserService {
 
         PageRequest pageRequest = PageRequest.of(pageNumber, pageSize);
 
-        searchQuery = searchQuery.replaceAll(" ", "");
-        searchQuery = searchQuery.replaceAll("\\.", "");
-        searchQuery = searchQuery.toLowerCase();
+        searchQuery = UserSearchIndex.normalize(searchQuery);
+
+        if (!userSearchIndex.isReady()) {
+            Page<User> usersResult = userRepository.getUserSearchName(searchQuery, pageRequest);
+            return UserSearchResponse.builder().users(usersResult.map(this::mapToSearchUserResponse)).build();
+        }
 
-        Page<User> usersResult = userRepository.getUserSearchName(searchQuery, pageRequest);
-        Page<UserSearch> users = usersResult.map(this::mapToSearchUserResponse);
+        Page<Integer> userIds = userSearchIndex.search(searchQuery, pageRequest);
+        Map<Integer, User> usersById = findUsersById(userIds);
+        // Keep the order of the index, a user deleted since the lookup is skipped
+        List<UserSearch> matches = userIds.getContent().stream()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
+                .map(this::mapToSearchUserResponse)
+                .toList();
+        Page<UserSearch> users = new PageImpl<>(matches, pageRequest, userIds.getTotalElements());
 
         return UserSearchResponse.builder().users(users).build();
     }
@@ -189,21 +251,18 @@ public class UserService {
                     .build();
         }
 
-        if (isFollow) {
-            followerRepository.save(UserFollowers.builder()
-                    .id(UserFollowerId.builder()
-                            .following(userRepository.getById(followingId))
-                            .follower(user.get())
-                            .build())
-                    .timestamp(LocalDateTime.now())
-                    .build());
-        } else {
-            followerRepository.deleteById(UserFollowerId.builder()
-                    .following(userRepository.getById(followingId))
-                    .follower(user.get())
-                    .build());
+        // Only touch the graph when the relationship actually changed, repeated requests are no-ops
+        Integer followerId = user.get().getId();
+        if (isFollow && followCounterService.follow(followerId, followingId)) {
+            socialGraphService.follow(followerId, followingId);
+        } else if (!isFollow && followCounterService.unfollow(followerId, followingId)) {
+            socialGraphService.unfollow(followerId, followingId);
         }
 
+        // The followed users changed, so rebuild the home timeline on the next read
+        timelineService.invalidate(user.get().getId());
+        suggestionService.invalidate(user.get().getId());
+
         String actionMessage = isFollow ? "followed" : "unfollowed";
         return UserActionResponse.builder()
                 .status(1)
@@ -222,22 +281,40 @@ public class UserService {
                 .id(user.getId())
                 .firstName(user.getFirstName())
                 .lastName(user.getLastName())
-                .base64Image(user.getBase64ProfilePicture())
+                .avatarUrl(user.getAvatarUrl(AvatarSize.SMALL))
                 .build();
     }
 
     /**
-     * Maps a user ID to a UserSearch object.
+     * Maps a page of user IDs to UserSearch objects, loading all users of the page in one query.
      *
-     * @param userId The user ID to map.
-     * @return UserSearch object containing mapped data.
+     * @param userIds The page of user IDs to map.
+     * @return A page of UserSearch objects in the same order as the IDs.
      */
-    private UserSearch mapToSearchUserResponse(Integer userId) {
-        Optional<User> user = userRepository.findById(userId);
+    private Page<UserSearch> mapToSearchUserResponses(Page<Integer> userIds) {
+        Map<Integer, User> usersById = findUsersById(userIds);
+
+        return userIds.map(userId -> {
+            User user = usersById.get(userId);
+            return (user == null) ?
+                    UserSearch.builder().avatarUrl("").firstName("Deleted").lastName("").build() :
+                    mapToSearchUserResponse(user);
+        });
+    }
 
-        return (user.isEmpty()) ?
-             UserSearch.builder().base64Image("").firstName("Deleted").lastName("").build() :
-             UserSearch.builder().firstName(user.get().getFirstName()).lastName(user.get().getLastName()).id(user.get().getId()).base64Image(user.get().getBase64ProfilePicture()).build();
+    /**
+     * Loads the users of a page of user IDs with a single query.
+     *
+     * @param userIds The page of user IDs.
+     * @return The users that still exist, keyed by ID.
+     */
+    private Map<Integer, User> findUsersById(Page<Integer> userIds) {
+        if (userIds.isEmpty()) {
+            return Map.of();
+        }
+
+        return userRepository.findAllById(userIds.getContent()).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
     }
 
     /**
@@ -287,15 +364,32 @@ public class UserService {
                     .build();
         }
 
-        if (!isValidImageFormat(imageData)) {
+        // The size is read from the header, so oversized images are rejected before their pixels are decoded
+        Dimension size = ThumbnailService.readSize(imageData);
+        if (size != null && (size.width > ThumbnailService.MAX_IMAGE_SIDE || size.height > ThumbnailService.MAX_IMAGE_SIDE)) {
+            return UserActionResponse.builder()
+                    .status(0)
+                    .message("Image dimensions exceed the maximum allowed limit.")
+                    .build();
+        }
+
+        // Decode the image once, it is handed to the thumbnail generation afterwards
+        BufferedImage image = size == null ? null : decodeImage(imageData);
+        if (image == null) {
             return UserActionResponse.builder()
                     .status(0)
                     .message("Invalid image format.")
                     .build();
         }
 
-        user.get().setProfilePicture(imageData);
-        userRepository.save(user.get());
+        String hash = avatarService.hash(imageData);
+        if (!profilePictureRepository.existsById(hash)) {
+            profilePictureRepository.save(ProfilePicture.builder().hash(hash).imageData(imageData).build());
+        }
+        // Only the picture column is written, the current user may be an outdated cached copy
+        userRepository.updateProfilePictureHash(user.get().getId(), hash);
+        userCacheService.evict(user.get().getEmail());
+        thumbnailService.generateThumbnails(hash, image);
 
         return UserActionResponse.builder()
                 .status(1)
@@ -312,7 +406,7 @@ public class UserService {
      */
     public UserFollowerCountResponse getFollowersCount(HttpServletRequest servletRequest, int userId) {
         isAuthorizedAccess(servletRequest);
-        int count = followerRepository.getCountFollowers(userId);
+        int count = followCounterService.getFollowerCount(userId);
 
         return UserFollowerCountResponse.builder().followerCount(count).build();
     }
@@ -326,7 +420,7 @@ public class UserService {
      */
     public UserFollowingCountResponse getFollowingsCount(HttpServletRequest servletRequest, int userId) {
         isAuthorizedAccess(servletRequest);
-        int count = followerRepository.getCountFollowings(userId);
+        int count = followCounterService.getFollowingCount(userId);
 
         return UserFollowingCountResponse.builder().followingCount(count).build();
     }
@@ -345,8 +439,10 @@ public class UserService {
 
         PageRequest pageRequest = PageRequest.of(pageNumber, pageSize);
 
-        Page<Integer> usersResult = followerRepository.getUserFollowers(userId, pageRequest);
-        Page<UserSearch> userSearched =  usersResult.map(this::mapToSearchUserResponse);
+        Page<Integer> usersResult = socialGraphService.isReady() ?
+                socialGraphService.getFollowers(userId, pageRequest) :
+                followerRepository.getUserFollowers(userId, pageRequest);
+        Page<UserSearch> userSearched = mapToSearchUserResponses(usersResult);
 
         return UserFollowListResponse.builder().userFollowList(userSearched).build();
     }
@@ -365,12 +461,59 @@ public class UserService {
 
         PageRequest pageRequest = PageRequest.of(pageNumber, pageSize);
 
-        Page<Integer> usersResult = followerRepository.getUserFollowings(userId, pageRequest);
-        Page<UserSearch> userSearched =  usersResult.map(this::mapToSearchUserResponse);
+        Page<Integer> usersResult = socialGraphService.isReady() ?
+                socialGraphService.getFollowings(userId, pageRequest) :
+                followerRepository.getUserFollowings(userId, pageRequest);
+        Page<UserSearch> userSearched = mapToSearchUserResponses(usersResult);
 
         return UserFollowListResponse.builder().userFollowList(userSearched).build();
     }
 
+    /**
+     * Retrieves users the current user may know, ranked by the number of mutual follows.
+     *
+     * @param servletRequest The HTTP servlet request.
+     * @param pageNumber     The page number.
+     * @param pageSize       The page size.
+     * @return UserSuggestionResponse containing the suggested users.
+     */
+    public UserSuggestionResponse getSuggestions(HttpServletRequest servletRequest, int pageNumber, int pageSize) {
+        Optional<User> user = getCurrentUser(servletRequest);
+
+        // Same check as isAuthorizedAccess, without looking up the current user twice
+        if (user.isEmpty() || user.get().getRole() == Role.GUEST) {
+            throw new AuthenicationException("Only users can access");
+        }
+
+        PageRequest pageRequest = PageRequest.of(pageNumber, pageSize);
+
+        List<SuggestionService.Suggestion> suggestions = suggestionService.getSuggestions(user.get().getId());
+        int from = (int) Math.min(pageRequest.getOffset(), suggestions.size());
+        int to = Math.min(from + pageSize, suggestions.size());
+        List<SuggestionService.Suggestion> page = suggestions.subList(from, to);
+
+        Map<Integer, User> usersById = page.isEmpty() ? Map.of() :
+                userRepository.findAllById(page.stream().map(SuggestionService.Suggestion::userId).toList()).stream()
+                        .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<UserSuggestion> users = page.stream()
+                .filter(suggestion -> usersById.containsKey(suggestion.userId()))
+                .map(suggestion -> {
+                    User suggested = usersById.get(suggestion.userId());
+                    return UserSuggestion.builder()
+                            .id(suggested.getId())
+                            .firstName(suggested.getFirstName())
+                            .lastName(suggested.getLastName())
+                            .avatarUrl(suggested.getAvatarUrl(AvatarSize.SMALL))
+                            .mutualCount(suggestion.mutualCount())
+                            .build();
+                })
+                .toList();
+
+        return UserSuggestionResponse.builder()
+                .suggestions(new PageImpl<>(users, pageRequest, suggestions.size()))
+                .build();
+    }
+
     /**
      * Reports a user.
      *
@@ -406,18 +549,18 @@ public class UserService {
     }
 
     /**
-     * Checks if the provided image data represents a valid image format.
+     * Decodes the provided image data.
      *
      * @param imageData The image data.
-     * @return True if the image format is valid, otherwise false.
+     * @return The decoded image, or null if the image format is not valid.
      */
-    private boolean isValidImageFormat(byte[] imageData) {
+    private BufferedImage decodeImage(byte[] imageData) {
         try (InputStream inputStream = new ByteArrayInputStream(imageData)) {
-            ImageIO.read(inputStream);
-            return true;  // If successful, the format is valid
+            // ImageIO returns null when no reader supports the format
+            return ImageIO.read(inputStream);
         } catch (IOException e) {
             // If an IOException occurs, it means the image format is not valid
-            return false;
+            return null;
         }
     }
 
@@ -4,6 +4,8 @@ import lombok.RequiredArgsConstructor;
 import me.yattaw.usmsocial.auth.RegisterRequest;
 import me.yattaw.usmsocial.entities.user.Role;
 import me.yattaw.usmsocial.service.EmailSenderService;
+import me.yattaw.usmsocial.service.TokenRevocationService;
+import me.yattaw.usmsocial.service.UserCacheService;
 import me.yattaw.usmsocial.entities.user.User;
 import me.yattaw.usmsocial.repositories.UserRepository;
 import org.springframework.http.HttpStatus;
@@ -23,8 +25,10 @@ import java.util.Optional;
 public class VerificationController {
 
     private final UserRepository userRepository;
+    private final UserCacheService userCacheService;
     private final PasswordEncoder passwordEncoder;
     private final EmailSenderService senderService;
+    private final TokenRevocationService tokenRevocationService;
 
     /**
      * Verifies a user's account based on the verification token.
@@ -44,6 +48,7 @@ public class VerificationController {
             user.setVerified(true);
             user.setVerificationToken(null);
             userRepository.save(user);
+            userCacheService.evict(user.getEmail());
             return ResponseEntity.ok("Account verified successfully.");
         } else {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid verification token.");
@@ -67,6 +72,7 @@ public class VerificationController {
             if (user.getVerificationToken() == null) {
                 user.generateVerificationToken();
                 userRepository.save(user);
+                userCacheService.evict(user.getEmail());
                 senderService.sendEmail(
                         user,
                         "Password Change Confirmation for USM Social Account",
@@ -98,7 +104,11 @@ public class VerificationController {
             user.setVerificationToken(null);
             user.setVerified(true); // Just verify anyway because they clicked the URL from the email.
             user.setPassword(passwordEncoder.encode(request.getPassword()));
+            // Sessions started with the old password must not outlive it
+            user.revokeTokens();
             userRepository.save(user);
+            userCacheService.evict(user.getEmail());
+            tokenRevocationService.invalidate(user.getId());
             return ResponseEntity.ok("Account password successfully changed.");
         } else {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid password token.");
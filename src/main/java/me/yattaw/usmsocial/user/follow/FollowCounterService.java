@@ -0,0 +1,252 @@
+package me.yattaw.usmsocial.user.follow;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import me.yattaw.usmsocial.service.MigrationService;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service class that writes follow relationships and maintains the denormalized
+ * <code>follower_count</code> and <code>following_count</code> columns of users.
+ *
+ * <p>
+ * A follow row is inserted or deleted in the same transaction that increments or decrements the
+ * counters of both users, and the counters are only touched when a row was actually changed, so
+ * concurrent or repeated requests cannot make them drift. Opening a profile therefore never has to
+ * count the rows of <code>usm_social_followers</code>. A periodic reconciliation recomputes every
+ * counter from the follower table to correct any drift.
+ * </p>
+ *
+ * <p>
+ * Counters of recently viewed users are also kept in memory for a short time, so changes made by
+ * other instances are picked up once the entry expires. A follow or unfollow adjusts a cached entry
+ * only if the entry was read before the change started; an entry read after the change committed
+ * already includes it, and an entry read while the change was in progress is dropped.
+ * </p>
+ *
+ * @version 17 April 2024
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@DependsOn("entityManagerFactory")
+public class FollowCounterService {
+
+    /**
+     * The maximum number of users whose counters are kept in memory.
+     */
+    private static final int MAX_CACHED_USERS = 10_000;
+
+    /**
+     * How long cached counters are used before they are read from the database again.
+     */
+    private static final long TIME_TO_LIVE_NANOS = Duration.ofMinutes(1).toNanos();
+
+    private static final String ADJUST_FOLLOWERS_SQL =
+            "UPDATE usm_social_users SET follower_count = follower_count + ? WHERE user_id = ?";
+
+    private static final String ADJUST_FOLLOWINGS_SQL =
+            "UPDATE usm_social_users SET following_count = following_count + ? WHERE user_id = ?";
+
+    private static final String SELECT_SQL =
+            "SELECT follower_count, following_count FROM usm_social_users WHERE user_id = ?";
+
+    private static final String FOLLOW_SQL = "INSERT IGNORE INTO usm_social_followers " +
+            "(follower_id, following_id, timestamp) VALUES (?, ?, NOW())";
+
+    private static final String UNFOLLOW_SQL =
+            "DELETE FROM usm_social_followers WHERE follower_id = ? AND following_id = ?";
+
+    private static final String REMOVE_FOLLOWINGS_SQL = "UPDATE usm_social_users u " +
+            "JOIN usm_social_followers f ON f.following_id = u.user_id " +
+            "SET u.follower_count = u.follower_count - 1 WHERE f.follower_id = ?";
+
+    private static final String REMOVE_FOLLOWERS_SQL = "UPDATE usm_social_users u " +
+            "JOIN usm_social_followers f ON f.follower_id = u.user_id " +
+            "SET u.following_count = u.following_count - 1 WHERE f.following_id = ?";
+
+    private static final String DELETE_USER_SQL =
+            "DELETE FROM usm_social_followers WHERE follower_id = ? OR following_id = ?";
+
+    private static final String RECONCILE_SQL = "UPDATE usm_social_users u SET " +
+            "follower_count = (SELECT COUNT(*) FROM usm_social_followers f WHERE f.following_id = u.user_id), " +
+            "following_count = (SELECT COUNT(*) FROM usm_social_followers f WHERE f.follower_id = u.user_id)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MigrationService migrationService;
+    private final PlatformTransactionManager transactionManager;
+
+    private final Map<Integer, FollowCounts> counts = new ConcurrentHashMap<>();
+
+    /**
+     * Counters read from the database.
+     *
+     * @param readStartedAt  The {@link System#nanoTime()} before the counters were queried.
+     * @param readFinishedAt The {@link System#nanoTime()} after the counters were queried.
+     */
+    private record FollowCounts(int followers, int followings, long readStartedAt, long readFinishedAt) {
+
+        FollowCounts adjust(int followerDelta, int followingDelta) {
+            return new FollowCounts(followers + followerDelta, followings + followingDelta, readStartedAt, readFinishedAt);
+        }
+    }
+
+    /**
+     * Computes the stored counters of users that followed each other before the columns existed.
+     * Runs once, before any requests are served; afterwards the counters are only changed together
+     * with the follow rows.
+     */
+    @PostConstruct
+    public void backfill() {
+        migrationService.runOnce("user_follow_counts", () -> {
+            int updated = jdbcTemplate.update(RECONCILE_SQL);
+            log.info("Backfilled follow counts of {} users", updated);
+        });
+    }
+
+    /**
+     * Recomputes every stored counter from the follower table, correcting any drift, and drops
+     * the cached counters.
+     */
+    @Scheduled(initialDelay = 3_600_000, fixedDelay = 3_600_000)
+    public void reconcile() {
+        int updated = jdbcTemplate.update(RECONCILE_SQL);
+        counts.clear();
+        log.info("Reconciled follow counts of {} users", updated);
+    }
+
+    /**
+     * Makes a user follow another user.
+     *
+     * @param followerId  The ID of the user who follows.
+     * @param followingId The ID of the user being followed.
+     * @return True if the relationship was created, false if it already existed or either user does not exist.
+     */
+    public boolean follow(Integer followerId, Integer followingId) {
+        if (Objects.equals(followerId, followingId)) {
+            return false;
+        }
+        return changeRelationship(FOLLOW_SQL, followerId, followingId, 1);
+    }
+
+    /**
+     * Makes a user stop following another user.
+     *
+     * @param followerId  The ID of the user who unfollows.
+     * @param followingId The ID of the user being unfollowed.
+     * @return True if the relationship was removed, false if it did not exist.
+     */
+    public boolean unfollow(Integer followerId, Integer followingId) {
+        return changeRelationship(UNFOLLOW_SQL, followerId, followingId, -1);
+    }
+
+    private boolean changeRelationship(String sql, Integer followerId, Integer followingId, int delta) {
+        long startedAt = System.nanoTime();
+        Boolean changed = new TransactionTemplate(transactionManager).execute(status -> {
+            // INSERT IGNORE and DELETE report 0 rows when a concurrent request already made the change
+            if (jdbcTemplate.update(sql, followerId, followingId) != 1) {
+                return false;
+            }
+            jdbcTemplate.update(ADJUST_FOLLOWERS_SQL, delta, followingId);
+            jdbcTemplate.update(ADJUST_FOLLOWINGS_SQL, delta, followerId);
+            return true;
+        });
+
+        if (!Boolean.TRUE.equals(changed)) {
+            return false;
+        }
+
+        long committedAt = System.nanoTime();
+        counts.computeIfPresent(followingId, (id, current) -> adjust(current, startedAt, committedAt, delta, 0));
+        counts.computeIfPresent(followerId, (id, current) -> adjust(current, startedAt, committedAt, 0, delta));
+        return true;
+    }
+
+    private static FollowCounts adjust(FollowCounts current, long startedAt, long committedAt,
+                                       int followerDelta, int followingDelta) {
+        if (current.readFinishedAt() - startedAt < 0) {
+            return current.adjust(followerDelta, followingDelta);
+        }
+        if (current.readStartedAt() - committedAt > 0) {
+            return current;
+        }
+        // Read while the change was in progress, it may or may not include it
+        return null;
+    }
+
+    /**
+     * Removes every follow relationship of a user that is about to be deleted, decrementing the
+     * counters of the users they followed and of the users following them.
+     *
+     * @param userId The ID of the user.
+     */
+    public void removeUser(Integer userId) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.update(REMOVE_FOLLOWINGS_SQL, userId);
+            jdbcTemplate.update(REMOVE_FOLLOWERS_SQL, userId);
+            jdbcTemplate.update(DELETE_USER_SQL, userId, userId);
+        });
+
+        // Any number of users may have changed, deleting users is rare enough to start over
+        counts.clear();
+    }
+
+    /**
+     * Retrieves the number of followers of a user.
+     *
+     * @param userId The ID of the user.
+     * @return The number of followers.
+     */
+    public int getFollowerCount(Integer userId) {
+        return getCounts(userId).followers();
+    }
+
+    /**
+     * Retrieves the number of users a user follows.
+     *
+     * @param userId The ID of the user.
+     * @return The number of followed users.
+     */
+    public int getFollowingCount(Integer userId) {
+        return getCounts(userId).followings();
+    }
+
+    private FollowCounts getCounts(Integer userId) {
+        FollowCounts cached = counts.get(userId);
+        if (cached != null && System.nanoTime() - cached.readFinishedAt() < TIME_TO_LIVE_NANOS) {
+            return cached;
+        }
+
+        evictIfFull();
+        long readStartedAt = System.nanoTime();
+        List<FollowCounts> stored = jdbcTemplate.query(SELECT_SQL, (resultSet, rowNumber) ->
+                new FollowCounts(resultSet.getInt(1), resultSet.getInt(2), readStartedAt, System.nanoTime()), userId);
+        FollowCounts loaded = stored.isEmpty() ? new FollowCounts(0, 0, readStartedAt, System.nanoTime()) : stored.get(0);
+
+        // Keep whichever entry was read last, a concurrent change may have already adjusted it
+        return counts.merge(userId, loaded, (current, read) ->
+                current.readStartedAt() - read.readStartedAt() > 0 ? current : read);
+    }
+
+    private void evictIfFull() {
+        Iterator<Integer> userIds = counts.keySet().iterator();
+        while (counts.size() >= MAX_CACHED_USERS && userIds.hasNext()) {
+            userIds.next();
+            userIds.remove();
+        }
+    }
+
+}
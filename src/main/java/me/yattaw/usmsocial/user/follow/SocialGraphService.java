@@ -0,0 +1,487 @@
+package me.yattaw.usmsocial.user.follow;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory copy of the follow graph stored in <code>usm_social_followers</code>.
+ *
+ * <p>
+ * Both directions of the graph are held in compressed sparse row form: one array of offsets
+ * indexed by user ID and one array of neighbour IDs, sorted within each row. Follow and unfollow
+ * events replace the row of the affected user with an updated copy, and the replaced rows are
+ * folded back into the compressed arrays once enough of them have accumulated.
+ * </p>
+ *
+ * <p>
+ * The graph is loaded once the application is ready. Until then {@link #isReady()} returns false
+ * and callers have to go to the database. Code that changes the follower table must call
+ * {@link #follow(int, int)}, {@link #unfollow(int, int)} or {@link #removeUser(int)}.
+ * </p>
+ *
+ * @version 17 April 2024
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SocialGraphService {
+
+    private static final String LOAD_SQL = "SELECT follower_id, following_id FROM usm_social_followers";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Users followed by each user.
+     */
+    private Adjacency followings = new Adjacency(new int[1], new int[0]);
+
+    /**
+     * Followers of each user.
+     */
+    private Adjacency followers = new Adjacency(new int[1], new int[0]);
+
+    private volatile boolean ready;
+
+    /**
+     * Loads every follow relationship into memory.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        EdgeList edges = new EdgeList();
+
+        // Hold the lock while reading, so follows recorded during the load are applied on top of it
+        lock.writeLock().lock();
+        try {
+            jdbcTemplate.query(LOAD_SQL, resultSet -> {
+                edges.add(resultSet.getInt(1), resultSet.getInt(2));
+            });
+            followings = Adjacency.fromEdges(edges.sources, edges.targets, edges.size);
+            followers = Adjacency.fromEdges(edges.targets, edges.sources, edges.size);
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Loaded {} follow relationships into the social graph", edges.size);
+    }
+
+    /**
+     * Checks whether the graph has been loaded.
+     *
+     * @return True if queries can be answered from the graph, false otherwise.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Records that a user followed another user.
+     *
+     * @param followerId  The ID of the user who followed.
+     * @param followingId The ID of the user who was followed.
+     */
+    public void follow(int followerId, int followingId) {
+        lock.writeLock().lock();
+        try {
+            followings.add(followerId, followingId);
+            followers.add(followingId, followerId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Records that a user unfollowed another user.
+     *
+     * @param followerId  The ID of the user who unfollowed.
+     * @param followingId The ID of the user who was unfollowed.
+     */
+    public void unfollow(int followerId, int followingId) {
+        lock.writeLock().lock();
+        try {
+            followings.remove(followerId, followingId);
+            followers.remove(followingId, followerId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes every relationship of a deleted user.
+     *
+     * @param userId The ID of the deleted user.
+     */
+    public void removeUser(int userId) {
+        lock.writeLock().lock();
+        try {
+            for (int followingId : followings.copyRow(userId)) {
+                followers.remove(followingId, userId);
+            }
+            for (int followerId : followers.copyRow(userId)) {
+                followings.remove(followerId, userId);
+            }
+            followings.clear(userId);
+            followers.clear(userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Checks whether a user follows another user.
+     *
+     * @param followerId  The ID of the possible follower.
+     * @param followingId The ID of the possibly followed user.
+     * @return True if the follow relationship exists, false otherwise.
+     */
+    public boolean isFollowing(int followerId, int followingId) {
+        lock.readLock().lock();
+        try {
+            return followings.contains(followerId, followingId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the IDs of all followers of a user in ascending order.
+     *
+     * @param userId The ID of the user.
+     * @return The IDs of the followers.
+     */
+    public int[] getFollowerIds(int userId) {
+        lock.readLock().lock();
+        try {
+            return followers.copyRow(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the IDs of all users a user follows in ascending order.
+     *
+     * @param userId The ID of the user.
+     * @return The IDs of the followed users.
+     */
+    public int[] getFollowingIds(int userId) {
+        lock.readLock().lock();
+        try {
+            return followings.copyRow(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves a page of the IDs of the followers of a user.
+     *
+     * @param userId   The ID of the user.
+     * @param pageable Pagination information.
+     * @return A page of follower IDs in ascending order.
+     */
+    public Page<Integer> getFollowers(int userId, Pageable pageable) {
+        lock.readLock().lock();
+        try {
+            return toPage(followers, userId, pageable);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves a page of the IDs of the users a user follows.
+     *
+     * @param userId   The ID of the user.
+     * @param pageable Pagination information.
+     * @return A page of followed user IDs in ascending order.
+     */
+    public Page<Integer> getFollowings(int userId, Pageable pageable) {
+        lock.readLock().lock();
+        try {
+            return toPage(followings, userId, pageable);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the users followed by both of two users.
+     *
+     * @param firstUserId  The ID of the first user.
+     * @param secondUserId The ID of the second user.
+     * @return The IDs of the users both users follow in ascending order.
+     */
+    public int[] getMutualFollowings(int firstUserId, int secondUserId) {
+        return intersect(getFollowingIds(firstUserId), getFollowingIds(secondUserId));
+    }
+
+    /**
+     * Counts the users followed by both of two users.
+     *
+     * @param firstUserId  The ID of the first user.
+     * @param secondUserId The ID of the second user.
+     * @return The number of users both users follow.
+     */
+    public int countMutualFollowings(int firstUserId, int secondUserId) {
+        return getMutualFollowings(firstUserId, secondUserId).length;
+    }
+
+    /**
+     * Filters a set of users down to the ones a user follows.
+     *
+     * @param userId  The ID of the user.
+     * @param userIds The IDs of the users to check.
+     * @return The IDs of the users among the given ones that the user follows.
+     */
+    public List<Integer> getFollowingsAmong(int userId, Collection<Integer> userIds) {
+        List<Integer> followed = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Integer candidate : userIds) {
+                if (followings.contains(userId, candidate)) {
+                    followed.add(candidate);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return followed;
+    }
+
+    /**
+     * Intersects two sorted arrays of user IDs.
+     *
+     * @param first  The first sorted array.
+     * @param second The second sorted array.
+     * @return The IDs present in both arrays in ascending order.
+     */
+    public static int[] intersect(int[] first, int[] second) {
+        int[] result = new int[Math.min(first.length, second.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                result[count++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static Page<Integer> toPage(Adjacency adjacency, int userId, Pageable pageable) {
+        int degree = adjacency.degree(userId);
+        int from = (int) Math.min(pageable.getOffset(), degree);
+        int to = Math.min(from + pageable.getPageSize(), degree);
+        List<Integer> content = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            content.add(adjacency.get(userId, i));
+        }
+        return new PageImpl<>(content, pageable, degree);
+    }
+
+    /**
+     * Growable pair of primitive arrays holding the edges read from the database.
+     */
+    private static final class EdgeList {
+
+        private int[] sources = new int[1024];
+        private int[] targets = new int[1024];
+        private int size;
+
+        void add(int source, int target) {
+            if (size == sources.length) {
+                sources = Arrays.copyOf(sources, size * 2);
+                targets = Arrays.copyOf(targets, size * 2);
+            }
+            sources[size] = source;
+            targets[size] = target;
+            size++;
+        }
+    }
+
+    /**
+     * One direction of the graph in compressed sparse row form.
+     *
+     * <p>
+     * The neighbours of user <code>u</code> are <code>targets[offsets[u]..offsets[u + 1]]</code>, unless
+     * the row has been changed since the arrays were built, in which case <code>overrides[u]</code> holds it.
+     * </p>
+     */
+    private static final class Adjacency {
+
+        /**
+         * The number of changed rows after which they are folded back into the compressed arrays.
+         */
+        private static final int COMPACTION_THRESHOLD = 4_096;
+
+        private static final int[] EMPTY_ROW = new int[0];
+
+        private int[] offsets;
+        private int[] targets;
+        private int[][] overrides;
+        private int overrideCount;
+
+        Adjacency(int[] offsets, int[] targets) {
+            this.offsets = offsets;
+            this.targets = targets;
+            this.overrides = new int[offsets.length - 1][];
+        }
+
+        static Adjacency fromEdges(int[] sources, int[] edgeTargets, int size) {
+            int maxSource = -1;
+            for (int i = 0; i < size; i++) {
+                maxSource = Math.max(maxSource, sources[i]);
+            }
+
+            // Counting sort of the edges by source, followed by sorting each row
+            int[] offsets = new int[maxSource + 2];
+            for (int i = 0; i < size; i++) {
+                offsets[sources[i] + 1]++;
+            }
+            for (int i = 1; i < offsets.length; i++) {
+                offsets[i] += offsets[i - 1];
+            }
+
+            int[] targets = new int[size];
+            int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+            for (int i = 0; i < size; i++) {
+                targets[next[sources[i]]++] = edgeTargets[i];
+            }
+            for (int source = 0; source < offsets.length - 1; source++) {
+                Arrays.sort(targets, offsets[source], offsets[source + 1]);
+            }
+
+            return new Adjacency(offsets, targets);
+        }
+
+        int degree(int source) {
+            int[] override = override(source);
+            if (override != null) {
+                return override.length;
+            }
+            return inBase(source) ? offsets[source + 1] - offsets[source] : 0;
+        }
+
+        int get(int source, int index) {
+            int[] override = override(source);
+            return override != null ? override[index] : targets[offsets[source] + index];
+        }
+
+        boolean contains(int source, int target) {
+            int[] override = override(source);
+            if (override != null) {
+                return Arrays.binarySearch(override, target) >= 0;
+            }
+            return inBase(source) && Arrays.binarySearch(targets, offsets[source], offsets[source + 1], target) >= 0;
+        }
+
+        int[] copyRow(int source) {
+            int[] override = override(source);
+            if (override != null) {
+                return override.clone();
+            }
+            return inBase(source) ? Arrays.copyOfRange(targets, offsets[source], offsets[source + 1]) : EMPTY_ROW;
+        }
+
+        void add(int source, int target) {
+            int[] row = copyRow(source);
+            int index = Arrays.binarySearch(row, target);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            int[] updated = new int[row.length + 1];
+            System.arraycopy(row, 0, updated, 0, index);
+            updated[index] = target;
+            System.arraycopy(row, index, updated, index + 1, row.length - index);
+            setRow(source, updated);
+        }
+
+        void remove(int source, int target) {
+            int[] row = copyRow(source);
+            int index = Arrays.binarySearch(row, target);
+            if (index < 0) {
+                return;
+            }
+            int[] updated = new int[row.length - 1];
+            System.arraycopy(row, 0, updated, 0, index);
+            System.arraycopy(row, index + 1, updated, index, row.length - index - 1);
+            setRow(source, updated);
+        }
+
+        void clear(int source) {
+            if (degree(source) > 0) {
+                setRow(source, EMPTY_ROW);
+            }
+        }
+
+        private boolean inBase(int source) {
+            return source >= 0 && source < offsets.length - 1;
+        }
+
+        private int[] override(int source) {
+            return source >= 0 && source < overrides.length ? overrides[source] : null;
+        }
+
+        private void setRow(int source, int[] row) {
+            if (source >= overrides.length) {
+                overrides = Arrays.copyOf(overrides, Math.max(source + 1, overrides.length * 2));
+            }
+            if (overrides[source] == null) {
+                overrideCount++;
+            }
+            overrides[source] = row;
+
+            if (overrideCount >= COMPACTION_THRESHOLD) {
+                compact();
+            }
+        }
+
+        private void compact() {
+            int rows = Math.max(overrides.length, offsets.length - 1);
+            int[] compactedOffsets = new int[rows + 1];
+            for (int source = 0; source < rows; source++) {
+                compactedOffsets[source + 1] = compactedOffsets[source] + degree(source);
+            }
+
+            int[] compactedTargets = new int[compactedOffsets[rows]];
+            for (int source = 0; source < rows; source++) {
+                int[] override = override(source);
+                if (override != null) {
+                    System.arraycopy(override, 0, compactedTargets, compactedOffsets[source], override.length);
+                } else if (inBase(source)) {
+                    System.arraycopy(targets, offsets[source], compactedTargets, compactedOffsets[source],
+                            offsets[source + 1] - offsets[source]);
+                }
+            }
+
+            offsets = compactedOffsets;
+            targets = compactedTargets;
+            overrides = new int[rows][];
+            overrideCount = 0;
+        }
+    }
+
+}
@@ -0,0 +1,225 @@
+package me.yattaw.usmsocial.user.follow;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Service class that suggests users to follow ("people you may know").
+ *
+ * <p>
+ * Candidates are the users followed by the users someone follows, ranked by how many of those
+ * followed users lead to them. The two-hop traversal runs over the {@link SocialGraphService} and is
+ * split across the common fork-join pool, so users following thousands of accounts still get their
+ * suggestions quickly. Results are cached per user for {@link #TIME_TO_LIVE} and dropped when the
+ * user follows or unfollows someone.
+ * </p>
+ *
+ * @version 17 April 2024
+ */
+@Service
+@RequiredArgsConstructor
+public class SuggestionService {
+
+    /**
+     * The maximum number of suggestions computed and cached per user.
+     */
+    public static final int MAX_SUGGESTIONS = 100;
+
+    /**
+     * The maximum number of users whose suggestions are kept in memory.
+     */
+    private static final int MAX_CACHED_USERS = 10_000;
+
+    /**
+     * How long cached suggestions are used before they are computed again.
+     */
+    private static final Duration TIME_TO_LIVE = Duration.ofMinutes(15);
+
+    /**
+     * The number of followed users a single fork-join task expands before it stops splitting.
+     */
+    private static final int SEQUENTIAL_THRESHOLD = 64;
+
+    private final SocialGraphService socialGraphService;
+
+    private final Map<Integer, CachedSuggestions> suggestions = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, CachedSuggestions> eldest) {
+                    return size() > MAX_CACHED_USERS;
+                }
+            }
+    );
+
+    /**
+     * A suggested user and the number of followed users that follow them.
+     *
+     * @param userId      The ID of the suggested user.
+     * @param mutualCount The number of users followed by the requesting user that follow the suggested user.
+     */
+    public record Suggestion(int userId, int mutualCount) {
+    }
+
+    private record CachedSuggestions(List<Suggestion> suggestions, long expiresAt) {
+    }
+
+    /**
+     * Retrieves the users suggested to a user, best first.
+     *
+     * @param userId The ID of the user.
+     * @return Up to {@link #MAX_SUGGESTIONS} suggestions, or none if the social graph is not loaded yet.
+     */
+    public List<Suggestion> getSuggestions(int userId) {
+        CachedSuggestions cached = suggestions.get(userId);
+        if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+            return cached.suggestions();
+        }
+
+        if (!socialGraphService.isReady()) {
+            return List.of();
+        }
+
+        List<Suggestion> computed = compute(userId);
+        suggestions.put(userId, new CachedSuggestions(computed, System.currentTimeMillis() + TIME_TO_LIVE.toMillis()));
+        return computed;
+    }
+
+    /**
+     * Drops the cached suggestions of a user, e.g. after the user followed or unfollowed someone.
+     *
+     * @param userId The ID of the user.
+     */
+    public void invalidate(Integer userId) {
+        suggestions.remove(userId);
+    }
+
+    private List<Suggestion> compute(int userId) {
+        int[] followings = socialGraphService.getFollowingIds(userId);
+        if (followings.length == 0) {
+            return List.of();
+        }
+
+        CandidateCounts counts = ForkJoinPool.commonPool().invoke(new TwoHopTask(followings, 0, followings.length));
+
+        // Pack the count above the inverted ID, so sorting ranks by count and then by lowest ID
+        long[] ranked = new long[counts.size];
+        int candidates = 0;
+        for (int i = 0; i < counts.size; i++) {
+            int candidate = counts.ids[i];
+            if (candidate != userId && Arrays.binarySearch(followings, candidate) < 0) {
+                ranked[candidates++] = ((long) counts.counts[i] << 32) | (Integer.MAX_VALUE - candidate);
+            }
+        }
+        Arrays.sort(ranked, 0, candidates);
+
+        List<Suggestion> result = new ArrayList<>(Math.min(candidates, MAX_SUGGESTIONS));
+        for (int i = candidates - 1; i >= 0 && result.size() < MAX_SUGGESTIONS; i--) {
+            result.add(new Suggestion(Integer.MAX_VALUE - (int) ranked[i], (int) (ranked[i] >>> 32)));
+        }
+        return List.copyOf(result);
+    }
+
+    /**
+     * Users reached in two hops with the number of paths to each, sorted by user ID.
+     */
+    private static final class CandidateCounts {
+
+        private final int[] ids;
+        private final int[] counts;
+        private final int size;
+
+        CandidateCounts(int[] ids, int[] counts, int size) {
+            this.ids = ids;
+            this.counts = counts;
+            this.size = size;
+        }
+
+        static CandidateCounts fromSorted(int[] sortedIds, int length) {
+            int[] ids = new int[length];
+            int[] counts = new int[length];
+            int size = 0;
+            for (int i = 0; i < length; i++) {
+                if (size > 0 && ids[size - 1] == sortedIds[i]) {
+                    counts[size - 1]++;
+                } else {
+                    ids[size] = sortedIds[i];
+                    counts[size] = 1;
+                    size++;
+                }
+            }
+            return new CandidateCounts(ids, counts, size);
+        }
+
+        CandidateCounts merge(CandidateCounts other) {
+            int[] mergedIds = new int[size + other.size];
+            int[] mergedCounts = new int[size + other.size];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size || j < other.size) {
+                if (j >= other.size || (i < size && ids[i] < other.ids[j])) {
+                    mergedIds[count] = ids[i];
+                    mergedCounts[count++] = counts[i++];
+                } else if (i >= size || ids[i] > other.ids[j]) {
+                    mergedIds[count] = other.ids[j];
+                    mergedCounts[count++] = other.counts[j++];
+                } else {
+                    mergedIds[count] = ids[i];
+                    mergedCounts[count++] = counts[i++] + other.counts[j++];
+                }
+            }
+            return new CandidateCounts(mergedIds, mergedCounts, count);
+        }
+    }
+
+    /**
+     * Counts the users followed by a range of followed users, splitting large ranges in half.
+     */
+    private final class TwoHopTask extends RecursiveTask<CandidateCounts> {
+
+        private final int[] followings;
+        private final int from;
+        private final int to;
+
+        TwoHopTask(int[] followings, int from, int to) {
+            this.followings = followings;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected CandidateCounts compute() {
+            if (to - from > SEQUENTIAL_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                TwoHopTask left = new TwoHopTask(followings, from, middle);
+                left.fork();
+                CandidateCounts right = new TwoHopTask(followings, middle, to).compute();
+                return left.join().merge(right);
+            }
+
+            int[] reached = new int[0];
+            int length = 0;
+            for (int i = from; i < to; i++) {
+                int[] row = socialGraphService.getFollowingIds(followings[i]);
+                if (length + row.length > reached.length) {
+                    reached = Arrays.copyOf(reached, Math.max(length + row.length, reached.length * 2));
+                }
+                System.arraycopy(row, 0, reached, length, row.length);
+                length += row.length;
+            }
+            Arrays.sort(reached, 0, length);
+            return CandidateCounts.fromSorted(reached, length);
+        }
+    }
+
+}
@@ -32,7 +32,7 @@ public class UserSearch {
     private String lastName;
 
     /**
-     * The Base64 encoded image data representing the user's profile picture.
+     * The URL of the user's profile picture.
      */
-    private String base64Image;
+    private String avatarUrl;
 }
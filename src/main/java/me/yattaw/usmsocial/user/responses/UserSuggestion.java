@@ -0,0 +1,43 @@
+package me.yattaw.usmsocial.user.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Represents a user suggested to follow, with the number of mutual follows.
+ *
+ * @version 17 April 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSuggestion {
+
+    /**
+     * The unique identifier of the user.
+     */
+    private Integer id;
+
+    /**
+     * The first name of the user.
+     */
+    private String firstName;
+
+    /**
+     * The last name of the user.
+     */
+    private String lastName;
+
+    /**
+     * The URL of the user's profile picture.
+     */
+    private String avatarUrl;
+
+    /**
+     * The number of users followed by the current user that follow this user.
+     */
+    private int mutualCount;
+}
@@ -0,0 +1,25 @@
+package me.yattaw.usmsocial.user.responses;
+
+import org.springframework.data.domain.Page;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response class containing a page of users suggested to the current user.
+ *
+ * @version 17 April 2024
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSuggestionResponse {
+
+    /**
+     * The page of suggested users, best first.
+     */
+    private Page<UserSuggestion> suggestions;
+}
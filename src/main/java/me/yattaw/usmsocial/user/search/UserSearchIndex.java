@@ -0,0 +1,262 @@
+package me.yattaw.usmsocial.user.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import me.yattaw.usmsocial.entities.user.User;
+import me.yattaw.usmsocial.repositories.UserRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index over the names of all users.
+ *
+ * <p>
+ * A user matches a query when the normalized query is a substring of the user's normalized full
+ * name (see {@link #normalize(String)}). Each trigram of a name maps to a sorted posting list of
+ * user IDs, so a query of three or more characters only has to verify the users present in the
+ * posting lists of all of its trigrams. Shorter queries scan the names held in memory.
+ * </p>
+ *
+ * <p>
+ * The index is built from the database once the application is ready. Until then
+ * {@link #isReady()} returns false and searches have to go to the database.
+ * Code that creates, renames or deletes a user must call {@link #index(User)} or {@link #remove(Integer)}.
+ * </p>
+ *
+ * @version 17 April 2024
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserSearchIndex {
+
+    private static final Comparator<IndexedUser> NAME_ORDER = Comparator
+            .comparing(IndexedUser::firstName, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(IndexedUser::lastName, String.CASE_INSENSITIVE_ORDER)
+            .thenComparingInt(IndexedUser::id);
+
+    private final UserRepository userRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, IndexedUser> users = new HashMap<>();
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    private volatile boolean ready;
+
+    private record IndexedUser(int id, String firstName, String lastName, String name) {
+    }
+
+    /**
+     * Normalizes a name or search query by lowercasing it and removing spaces and periods.
+     *
+     * @param text The text to normalize.
+     * @return The normalized text.
+     */
+    public static String normalize(String text) {
+        return text == null ? "" : text.replace(" ", "").replace(".", "").toLowerCase();
+    }
+
+    /**
+     * Loads every user into the index.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        List<User> all = userRepository.findAll();
+        lock.writeLock().lock();
+        try {
+            all.forEach(this::add);
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Indexed the names of {} users for search", all.size());
+    }
+
+    /**
+     * Checks whether the index has been built.
+     *
+     * @return True if searches can be served from the index, false otherwise.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Adds a user to the index or updates the indexed name of the user.
+     *
+     * @param user The created or updated user.
+     */
+    public void index(User user) {
+        lock.writeLock().lock();
+        try {
+            removeUser(user.getId());
+            add(user);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a deleted user from the index.
+     *
+     * @param userId The ID of the deleted user.
+     */
+    public void remove(Integer userId) {
+        lock.writeLock().lock();
+        try {
+            removeUser(userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the users whose name contains the query, ordered by first and last name.
+     *
+     * @param query    The search query, normalized with {@link #normalize(String)}.
+     * @param pageable Pagination information.
+     * @return A page of the IDs of the matching users.
+     */
+    public Page<Integer> search(String query, Pageable pageable) {
+        List<IndexedUser> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (query.length() < 3) {
+                for (IndexedUser user : users.values()) {
+                    if (user.name().contains(query)) {
+                        matches.add(user);
+                    }
+                }
+            } else {
+                for (int id : candidates(query)) {
+                    IndexedUser user = users.get(id);
+                    // Sharing every trigram does not guarantee the trigrams are adjacent in the name
+                    if (user.name().contains(query)) {
+                        matches.add(user);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        matches.sort(NAME_ORDER);
+        int from = (int) Math.min(pageable.getOffset(), matches.size());
+        int to = Math.min(from + pageable.getPageSize(), matches.size());
+        List<Integer> pageIds = matches.subList(from, to).stream().map(IndexedUser::id).toList();
+        return new PageImpl<>(pageIds, pageable, matches.size());
+    }
+
+    private int[] candidates(String query) {
+        // Intersect starting from the shortest posting list to keep the intermediate result small
+        List<PostingList> lists = new ArrayList<>();
+        for (int i = 0; i + 3 <= query.length(); i++) {
+            PostingList list = postings.get(trigram(query, i));
+            if (list == null) {
+                return new int[0];
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.size));
+
+        int[] result = Arrays.copyOf(lists.get(0).ids, lists.get(0).size);
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = lists.get(i).intersect(result);
+        }
+        return result;
+    }
+
+    private void add(User user) {
+        IndexedUser indexed = new IndexedUser(user.getId(),
+                user.getFirstName() == null ? "" : user.getFirstName(),
+                user.getLastName() == null ? "" : user.getLastName(),
+                normalize(user.getFirstName()) + normalize(user.getLastName()));
+        users.put(indexed.id(), indexed);
+        for (int i = 0; i + 3 <= indexed.name().length(); i++) {
+            postings.computeIfAbsent(trigram(indexed.name(), i), key -> new PostingList()).add(indexed.id());
+        }
+    }
+
+    private void removeUser(int userId) {
+        IndexedUser indexed = users.remove(userId);
+        if (indexed == null) {
+            return;
+        }
+        for (int i = 0; i + 3 <= indexed.name().length(); i++) {
+            long key = trigram(indexed.name(), i);
+            PostingList list = postings.get(key);
+            if (list != null && list.remove(userId) && list.size == 0) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    private static long trigram(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+
+    /**
+     * Sorted set of user IDs backed by a primitive int array.
+     */
+    private static final class PostingList {
+
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        int[] intersect(int[] sorted) {
+            int[] result = new int[Math.min(size, sorted.length)];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size && j < sorted.length) {
+                if (ids[i] < sorted[j]) {
+                    i++;
+                } else if (ids[i] > sorted[j]) {
+                    j++;
+                } else {
+                    result[count++] = ids[i];
+                    i++;
+                    j++;
+                }
+            }
+            return Arrays.copyOf(result, count);
+        }
+    }
+
+}
@@ -0,0 +1,82 @@
+package me.yattaw.usmsocial.messages.group;
+
+import me.yattaw.usmsocial.messages.response.MessageResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GroupMessageBufferTests {
+
+    private static MessageResponse message(int id) {
+        return MessageResponse.builder().messageId(id).content("Message " + id).build();
+    }
+
+    private static List<Integer> ids(GroupMessageBuffer buffer) {
+        return buffer.newest().stream().map(MessageResponse::getMessageId).toList();
+    }
+
+    @Test
+    void keepsTheNewestMessagesWhenWrappingAround() {
+        GroupMessageBuffer buffer = new GroupMessageBuffer(3, List.of(message(2), message(1)));
+
+        for (int id = 3; id <= 8; id++) {
+            buffer.add(message(id));
+            assertEquals(Math.min(id, 3), buffer.newest().size());
+        }
+
+        assertEquals(List.of(8, 7, 6), ids(buffer));
+    }
+
+    @Test
+    void loadsOnlyTheNewestMessagesThatFit() {
+        GroupMessageBuffer buffer = new GroupMessageBuffer(2, List.of(message(5), message(4), message(3)));
+
+        assertEquals(List.of(5, 4), ids(buffer));
+    }
+
+    @Test
+    void ignoresMessagesThatAreAlreadyBuffered() {
+        GroupMessageBuffer buffer = new GroupMessageBuffer(3, List.of(message(5), message(4)));
+
+        buffer.add(message(5));
+        buffer.add(message(4));
+
+        assertEquals(List.of(5, 4), ids(buffer));
+    }
+
+    @Test
+    void insertsMessagesAppendedOutOfOrder() {
+        GroupMessageBuffer buffer = new GroupMessageBuffer(3, List.of(message(100)));
+
+        buffer.add(message(102));
+        buffer.add(message(101));
+
+        assertEquals(List.of(102, 101, 100), ids(buffer));
+
+        buffer.add(message(99));
+        buffer.add(message(104));
+        buffer.add(message(103));
+
+        assertEquals(List.of(104, 103, 102), ids(buffer));
+    }
+
+    @Test
+    void mergesMessagesAddedWhileLoading() {
+        GroupMessageBuffer buffer = new GroupMessageBuffer(3);
+        assertFalse(buffer.isLoaded());
+
+        buffer.add(message(7));
+        buffer.load(List.of(message(7), message(6), message(5), message(4)));
+
+        assertTrue(buffer.isLoaded());
+        assertEquals(List.of(7, 6, 5), ids(buffer));
+
+        buffer.add(message(8));
+        assertEquals(List.of(8, 7, 6), ids(buffer));
+    }
+
+}
@@ -0,0 +1,126 @@
+package me.yattaw.usmsocial.user.follow;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SocialGraphServiceTests {
+
+    /**
+     * Enough followers of a single user to make the followings side fold its changed rows back
+     * into the compressed arrays at least once.
+     */
+    private static final int COMPACTING_FOLLOWER_COUNT = 5_000;
+
+    /**
+     * Creates a loaded graph from follow relationships given as follower and following ID pairs.
+     */
+    static SocialGraphService loadedGraph(int[]... edges) throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (int[] edge : edges) {
+                ResultSet resultSet = mock(ResultSet.class);
+                when(resultSet.getInt(1)).thenReturn(edge[0]);
+                when(resultSet.getInt(2)).thenReturn(edge[1]);
+                handler.processRow(resultSet);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+
+        SocialGraphService graph = new SocialGraphService(jdbcTemplate);
+        graph.build();
+        return graph;
+    }
+
+    @Test
+    void loadsRelationshipsInBothDirections() throws Exception {
+        SocialGraphService graph = loadedGraph(new int[]{1, 3}, new int[]{1, 2}, new int[]{2, 3});
+
+        assertTrue(graph.isReady());
+        assertArrayEquals(new int[]{2, 3}, graph.getFollowingIds(1));
+        assertArrayEquals(new int[]{1, 2}, graph.getFollowerIds(3));
+        assertTrue(graph.isFollowing(2, 3));
+        assertFalse(graph.isFollowing(3, 2));
+    }
+
+    @Test
+    void followsUsersPastTheLoadedRows() throws Exception {
+        SocialGraphService graph = loadedGraph(new int[]{1, 2});
+
+        graph.follow(1, 100);
+        graph.follow(250, 1);
+
+        assertArrayEquals(new int[]{2, 100}, graph.getFollowingIds(1));
+        assertArrayEquals(new int[]{1}, graph.getFollowerIds(100));
+        assertArrayEquals(new int[]{1}, graph.getFollowingIds(250));
+        assertArrayEquals(new int[]{250}, graph.getFollowerIds(1));
+        assertArrayEquals(new int[0], graph.getFollowingIds(1_000));
+    }
+
+    @Test
+    void followAndUnfollowAreIdempotent() throws Exception {
+        SocialGraphService graph = loadedGraph(new int[]{1, 2});
+
+        graph.follow(1, 2);
+        graph.unfollow(1, 3);
+
+        assertArrayEquals(new int[]{2}, graph.getFollowingIds(1));
+
+        graph.unfollow(1, 2);
+        graph.unfollow(1, 2);
+
+        assertArrayEquals(new int[0], graph.getFollowingIds(1));
+        assertArrayEquals(new int[0], graph.getFollowerIds(2));
+    }
+
+    @Test
+    void keepsRelationshipsAcrossCompaction() throws Exception {
+        SocialGraphService graph = loadedGraph(new int[]{1, 0}, new int[]{2, 0});
+
+        for (int followerId = 3; followerId <= COMPACTING_FOLLOWER_COUNT; followerId++) {
+            graph.follow(followerId, 0);
+        }
+        graph.unfollow(2, 0);
+        graph.follow(COMPACTING_FOLLOWER_COUNT + 1, 0);
+
+        int[] followerIds = graph.getFollowerIds(0);
+        assertEquals(COMPACTING_FOLLOWER_COUNT, followerIds.length);
+        assertEquals(1, followerIds[0]);
+        assertEquals(3, followerIds[1]);
+        assertEquals(COMPACTING_FOLLOWER_COUNT + 1, followerIds[followerIds.length - 1]);
+        for (int followerId = 3; followerId <= COMPACTING_FOLLOWER_COUNT + 1; followerId++) {
+            assertTrue(graph.isFollowing(followerId, 0));
+        }
+        assertTrue(graph.isFollowing(1, 0));
+        assertFalse(graph.isFollowing(2, 0));
+        assertArrayEquals(new int[0], graph.getFollowingIds(2));
+    }
+
+    @Test
+    void removesEveryRelationshipOfAUser() throws Exception {
+        SocialGraphService graph = loadedGraph(new int[]{1, 2}, new int[]{2, 1}, new int[]{3, 2}, new int[]{2, 4});
+
+        graph.removeUser(2);
+
+        assertArrayEquals(new int[0], graph.getFollowingIds(2));
+        assertArrayEquals(new int[0], graph.getFollowerIds(2));
+        assertArrayEquals(new int[0], graph.getFollowingIds(1));
+        assertArrayEquals(new int[0], graph.getFollowerIds(1));
+        assertArrayEquals(new int[0], graph.getFollowingIds(3));
+        assertArrayEquals(new int[0], graph.getFollowerIds(4));
+    }
+
+}
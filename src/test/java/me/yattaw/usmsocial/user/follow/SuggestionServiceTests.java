@@ -0,0 +1,56 @@
+package me.yattaw.usmsocial.user.follow;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SuggestionServiceTests {
+
+    @Test
+    void ranksByMutualCountThenLowestId() throws Exception {
+        SocialGraphService graph = SocialGraphServiceTests.loadedGraph(
+                new int[]{1, 2}, new int[]{1, 3},
+                new int[]{2, 10}, new int[]{3, 10}, new int[]{2, 11}, new int[]{3, 9}, new int[]{2, 1});
+
+        List<SuggestionService.Suggestion> suggestions = new SuggestionService(graph).getSuggestions(1);
+
+        // The user themselves and users they already follow are never suggested
+        assertEquals(List.of(
+                new SuggestionService.Suggestion(10, 2),
+                new SuggestionService.Suggestion(9, 1),
+                new SuggestionService.Suggestion(11, 1)), suggestions);
+    }
+
+    @Test
+    void mergesCountsOfSplitTasks() throws Exception {
+        // Enough followed users for the two-hop expansion to be split and its counts merged
+        int followedCount = 300;
+        SocialGraphService graph = SocialGraphServiceTests.loadedGraph();
+        for (int followedId = 100; followedId < 100 + followedCount; followedId++) {
+            graph.follow(1, followedId);
+            graph.follow(followedId, 10_000);
+            if (followedId % 2 == 0) {
+                graph.follow(followedId, 10_001);
+            }
+            if (followedId % 3 == 0) {
+                graph.follow(followedId, 10_002 + followedId);
+            }
+        }
+
+        List<SuggestionService.Suggestion> suggestions = new SuggestionService(graph).getSuggestions(1);
+
+        assertEquals(new SuggestionService.Suggestion(10_000, followedCount), suggestions.get(0));
+        assertEquals(new SuggestionService.Suggestion(10_001, followedCount / 2), suggestions.get(1));
+        assertEquals(SuggestionService.MAX_SUGGESTIONS, suggestions.size());
+        for (SuggestionService.Suggestion suggestion : suggestions.subList(2, suggestions.size())) {
+            assertEquals(1, suggestion.mutualCount());
+        }
+        for (int i = 3; i < suggestions.size(); i++) {
+            assertTrue(suggestions.get(i - 1).userId() < suggestions.get(i).userId());
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+package me.yattaw.usmsocial.user.search;
+
+import me.yattaw.usmsocial.entities.user.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UserSearchIndexTests {
+
+    private static User user(int id, String firstName, String lastName) {
+        return User.builder().id(id).firstName(firstName).lastName(lastName).build();
+    }
+
+    private static UserSearchIndex index(User... users) {
+        UserSearchIndex index = new UserSearchIndex(null);
+        for (User user : users) {
+            index.index(user);
+        }
+        return index;
+    }
+
+    private static List<Integer> search(UserSearchIndex index, String query) {
+        return index.search(UserSearchIndex.normalize(query), PageRequest.of(0, 20)).getContent();
+    }
+
+    @Test
+    void intersectsThePostingListsOfEveryTrigram() {
+        UserSearchIndex index = index(
+                user(1, "Alice", "Smith"),
+                user(2, "Alicia", "Keys"),
+                user(3, "Malik", "Ali"),
+                user(4, "Bob", "Smithers"));
+
+        assertEquals(List.of(1, 2), search(index, "alic"));
+        assertEquals(List.of(1, 4), search(index, "smith"));
+        assertEquals(List.of(1), search(index, "ce smi"));
+        assertEquals(List.of(), search(index, "alicex"));
+    }
+
+    @Test
+    void requiresTheTrigramsToBeAdjacent() {
+        // Both names contain "abc" and "bcd", only the first contains "abcd"
+        UserSearchIndex index = index(user(1, "Abcd", "Doe"), user(2, "Abcx", "Bcd"));
+
+        assertEquals(List.of(1), search(index, "abcd"));
+    }
+
+    @Test
+    void reindexesRenamedAndRemovedUsers() {
+        UserSearchIndex index = index(user(1, "Alice", "Smith"), user(2, "Alicia", "Keys"));
+
+        index.index(user(1, "Carol", "Smith"));
+        index.remove(2);
+
+        assertEquals(List.of(), search(index, "alic"));
+        assertEquals(List.of(1), search(index, "carol"));
+    }
+
+    @Test
+    void pagesMatchesInNameOrder() {
+        UserSearchIndex index = index(
+                user(3, "Sam", "Carter"),
+                user(1, "Sam", "Adams"),
+                user(2, "Sam", "Baker"));
+
+        Page<Integer> page = index.search("sam", PageRequest.of(1, 2));
+
+        assertEquals(List.of(3), page.getContent());
+        assertEquals(3, page.getTotalElements());
+    }
+
+}